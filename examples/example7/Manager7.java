@@ -3,11 +3,8 @@ package example7;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.event.KeyEvent;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
+import java.nio.file.Paths;
 
 import moulton.scalable.clickables.Button;
 import moulton.scalable.clickables.Clickable;
@@ -25,33 +22,13 @@ public class Manager7 extends MenuManager{
 	private String filePath = null;
 	private boolean controlOn = false;
 	private boolean shiftOn = false;
-	
-	private final int UNDO_CAP = 20;
-	private String[] undoHistory;
-	private int histIndex = 0; //the index that holds what is current
 
 	public Manager7(Container cont) {
 		super(cont);
 	}
 	
-	private void setUndo(String start) {
-		undoHistory = new String[UNDO_CAP];
-		undoHistory[0] = start;
-		histIndex = 0;
-	}
-	
-	private void addUndoEntry(String current) {
-		histIndex++; //go to next index
-		if(histIndex >= UNDO_CAP)
-			histIndex = 0; //wrap around if necessary
-		undoHistory[histIndex] = current;
-		//delete the next in the circular array
-		if(histIndex >= UNDO_CAP-1)
-			undoHistory[0] = null;
-		else
-			undoHistory[histIndex+1] = null;
-		
-		//if it is possible to undo, then it should be possible to save (if the path is set)
+	private void edited() {
+		//undo and redo are handled by the text box. If it was edited, it should be possible to save (if the path is set)
 		if(filePath != null)
 			saveButton.setEnabled(true);
 	}
@@ -76,7 +53,6 @@ public class Manager7 extends MenuManager{
 		fileContents.setTextScroller(new ScrollBar(true, menu, "width-20", "40", "20", "?height",
 				Color.LIGHT_GRAY));
 		fileContents.setAcceptEnter(true);
-		setUndo(fileContents.getMessage());
 	}
 	
 	@Override
@@ -91,27 +67,16 @@ public class Manager7 extends MenuManager{
 		setPopUp(null);
 	}
 	private void newSave() {
-		setPath(null);
-		addUndoEntry(fileContents.getMessage()); //allow undo from new
+		setPath(null); //the text box allows undo from new
 	}
 	private void load() {
 		createPopup(true);
 	}
 	private void save() {
-		FileWriter fw = null;
 		try {
-			fw = new FileWriter(new File(filePath));
-			fw.write(fileContents.getMessage());
+			fileContents.save(Paths.get(filePath));
 		} catch (IOException e) {
 			e.printStackTrace();
-		} finally {
-			if(fw != null) {
-				try {
-					fw.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-			}
 		}
 		saveButton.setEnabled(false);
 	}
@@ -138,20 +103,10 @@ public class Manager7 extends MenuManager{
 			//Path Finder Pop up actions
 			case "doSave":
 				String toPath = ((PathFinderPopup)popup).getPath();
-				FileWriter fw = null;
 				try {
-					fw = new FileWriter(new File(toPath));
-					fw.write(fileContents.getMessage());
+					fileContents.save(Paths.get(toPath));
 				} catch (IOException e) {
 					e.printStackTrace();
-				} finally {
-					if(fw != null) {
-						try {
-							fw.close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-					}
 				}
 				
 				filePath = toPath; //just save it without loading stuff
@@ -160,7 +115,6 @@ public class Manager7 extends MenuManager{
 				break;
 			case "doLoad":
 				setPath(((PathFinderPopup)popup).getPath());
-				setUndo(fileContents.getMessage());
 				//then fall through to cancel\quit
 			case "cancel":
 				cancelSave();
@@ -187,26 +141,16 @@ public class Manager7 extends MenuManager{
 			fileContents.setMessage("");
 			saveButton.setEnabled(false);
 		}else {
-			//actually load the file up too
-			Scanner scan = null;
+			//actually load the file up too. It is streamed into the text box, which can't undo past it
 			try {
-				String fullString = "";
-				scan = new Scanner(new File(filePath));
-				while(scan.hasNextLine()) {
-					fullString += scan.nextLine() + '\n';
-				}
-				//now the full is the contents of the file
-				fileContents.setMessage(fullString);
+				fileContents.load(Paths.get(filePath));
 				//if it is a txt file, we will not allow word splitting
 				if(filePath.substring(filePath.lastIndexOf('.')+1).equals("txt"))
 					fileContents.setWordSplitting(false);
 				else
 					fileContents.setWordSplitting(true);
-			} catch (FileNotFoundException e) {
+			} catch (IOException e) {
 				e.printStackTrace();
-			} finally {
-				if(scan != null)
-					scan.close();
 			}
 		}
 	}
@@ -276,7 +220,7 @@ public class Manager7 extends MenuManager{
 			}
 			super.keyPressed(key);
 			if(key == KeyEvent.VK_BACK_SPACE || key == KeyEvent.VK_DELETE)
-				addUndoEntry(fileContents.getMessage());
+				edited();
 		}
 		if(controlOn) {
 			if(shiftOn) {
@@ -297,26 +241,6 @@ public class Manager7 extends MenuManager{
 				else
 					saveAs();
 				break;
-			case KeyEvent.VK_Y: //ctr-Y
-				//redo
-				int tempIndex = histIndex + 1;
-				if(tempIndex >= UNDO_CAP)
-					tempIndex = 0;
-				if(undoHistory[tempIndex] != null) {
-					histIndex = tempIndex;
-					fileContents.setMessage(undoHistory[histIndex]);
-				}
-				break;
-			case KeyEvent.VK_Z: //ctr-z
-				//undo
-				tempIndex = histIndex - 1;
-				if(tempIndex < 0)
-					tempIndex = UNDO_CAP-1;
-				if(undoHistory[tempIndex] != null) {
-					histIndex = tempIndex;
-					fileContents.setMessage(undoHistory[histIndex]);
-				}
-				break;
 			}
 		}
 		
@@ -332,8 +256,9 @@ public class Manager7 extends MenuManager{
 	@Override
 	public void keyTyped(char key) {
 		super.keyTyped(key);
-		if(key >= 30)
-			addUndoEntry(fileContents.getMessage());
+		//ctr-z and ctr-y undo and redo in the text box
+		if(key >= 30 || key == (char)26 || key == (char)25)
+			edited();
 	}
 	
 }
@@ -9,6 +9,10 @@ import java.awt.Rectangle;
 import moulton.scalable.containers.MenuManager;
 import moulton.scalable.containers.Panel;
 import moulton.scalable.texts.Alignment;
+import moulton.scalable.texts.GlyphRuns;
+import moulton.scalable.texts.GlyphWidths;
+import moulton.scalable.texts.TruncatedText;
+import moulton.scalable.utils.FontCache;
 import moulton.scalable.utils.MenuComponent;
 import moulton.scalable.utils.MenuSolver.Expression;
 
@@ -42,6 +46,15 @@ public class Button extends RadioButton {
 	 * @see #getTextColor()
 	 * @see #setTextColor(Color)*/
 	protected Color textColor = null;
+	/**Keeps the shaped glyphs of the text between renders, or null if the text is shaped each time it
+	 * is drawn. Defaults to null.
+	 * @see #setGlyphCaching(boolean)*/
+	protected GlyphRuns glyphRuns = null;
+	/**Whether text too wide for the button ends with an ellipsis where it is cut. Defaults to false.
+	 * @see #setEllipsis(boolean)*/
+	protected boolean ellipsis = false;
+	/**The text shown on the button's face in the most recent render.*/
+	protected TruncatedText shownText = null;
 	
 	/**
 	 * @param text the string displayed on the button
@@ -69,7 +82,7 @@ public class Button extends RadioButton {
 	public Button(String id, String text, Panel parent, String x, String y,
 			String width, String height, Font font, Color color) {
 		super(parent, x, y, color);
-		this.id = id;
+		setId(id);
 		this.width = solve.parse(width, true, false);
 		this.height = solve.parse(height, true, false);
 		this.text = text;
@@ -124,8 +137,7 @@ public class Button extends RadioButton {
 			g.fillRect(x, y, w, h);
 		}
 		if(parent != null)
-			defineClickBoundary(parent.handleOffsets(new int[] {x, x+w, x+w, x},
-					new int[] {y, y, y+h, y+h}, this));
+			defineClickBoundary(x, y, w, h);
 		
 		if (outline) {
 			g.setColor(Color.BLACK);
@@ -154,30 +166,32 @@ public class Button extends RadioButton {
 		// draw the text
 		if (text != null && !text.isEmpty()) {
 			if(textResize())
-				g.setFont(new Font(font.getFontName(), font.getStyle(),
-						getTextVertResize(font.getSize())));
+				g.setFont(FontCache.derive(font, getTextVertResize(font.getSize())));
 			else
 				g.setFont(font);
 			FontMetrics fm = g.getFontMetrics();
-			int fontWidth = fm.stringWidth(text);
-			String shownText = text;
-			while(fontWidth > w && shownText.length()>0) {
-				shownText = shownText.substring(0, shownText.length()-1); //decrease size
-				fontWidth = fm.stringWidth(shownText);
-			}
+			GlyphWidths widths = GlyphWidths.of(fm);
+			if(shownText == null || !shownText.isOf(text, widths, w, ellipsis))
+				shownText = TruncatedText.of(text, widths, w, ellipsis);
+			int fontWidth = shownText.getWidth();
 			int fontHeight = fm.getHeight();
 			
+			int textX;
 			switch(alignment) {
-			case CENTER_ALIGNMENT:
-				g.drawString(shownText, x + w/2 - fontWidth/2, (int) (y + h/2 + fontHeight/2.8));
-				break;
 			case LEFT_ALIGNMENT:
-				g.drawString(shownText, x, (int) (y + h/2 + fontHeight/2.8));
+				textX = x;
 				break;
 			case RIGHT_ALIGNMENT:
-				g.drawString(shownText, x + w - fontWidth, (int) (y + h/2 + fontHeight/2.8));
+				textX = x + w - fontWidth;
 				break;
+			default:
+				textX = x + w/2 - fontWidth/2;
 			}
+			int textY = (int) (y + h/2 + fontHeight/2.8);
+			if(glyphRuns != null)
+				glyphRuns.drawString(g, 0, shownText.getText(), textX, textY);
+			else
+				g.drawString(shownText.getText(), textX, textY);
 		}
 	}
 	
@@ -208,6 +222,23 @@ public class Button extends RadioButton {
 		return this;
 	}
 	
+	/**
+	 * Sets whether text too wide for the button ends with an ellipsis where it is cut.
+	 * @param ellipsis the value to replace {@link #ellipsis}
+	 * @return this
+	 */
+	public Button setEllipsis(boolean ellipsis) {
+		this.ellipsis = ellipsis;
+		return this;
+	}
+	/**
+	 * Returns whether text too wide for the button ends with an ellipsis where it is cut.
+	 * @return {@link #ellipsis}
+	 */
+	public boolean getEllipsis() {
+		return ellipsis;
+	}
+	
 	/**
 	 * Sets the color of the text on the button's face.
 	 * @param color to replace {@link #textColor}
@@ -223,4 +254,23 @@ public class Button extends RadioButton {
 	public Color getTextColor() {
 		return this.textColor;
 	}
+	
+	/**
+	 * Sets whether the shaped glyphs of the text on the button's face are kept between renders. This
+	 * makes drawing faster for buttons whose text seldom changes, at the cost of keeping the glyphs
+	 * in memory.
+	 * @param cache whether to keep the glyphs in {@link #glyphRuns}
+	 * @return this
+	 */
+	public Button setGlyphCaching(boolean cache) {
+		glyphRuns = cache? new GlyphRuns(): null;
+		return this;
+	}
+	/**
+	 * Returns whether the shaped glyphs of the text on the button's face are kept between renders.
+	 * @return whether {@link #glyphRuns} is set
+	 */
+	public boolean getGlyphCaching() {
+		return glyphRuns != null;
+	}
 }
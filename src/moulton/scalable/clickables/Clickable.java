@@ -72,6 +72,14 @@ public abstract class Clickable extends MenuComponent implements TouchResponsive
 	 * @see #defineClickBoundary(int[][])
 	 */
 	protected int[][] clickBoundary = null;
+	/**The arrays reused by {@link #defineClickBoundary(int, int, int, int)} to hold a rectangular
+	 * click boundary, so that defining it each render does not allocate.*/
+	private int[][] rectBoundary = null;
+	/**The polygon used to test {@link #clickBoundary} in {@link #clickableAt(int, int)}. Reused
+	 * between tests and only reset once the boundary has been defined again.*/
+	private Polygon boundaryPolygon = null;
+	/**Whether {@link #boundaryPolygon} needs to be reset to the current {@link #clickBoundary}.*/
+	private boolean boundaryChanged = true;
 
 	/**
 	 * This is for use of creating a clickable that will reside on the panel in a free-floating
@@ -81,7 +89,7 @@ public abstract class Clickable extends MenuComponent implements TouchResponsive
 	@Deprecated(since="1.15")
 	public Clickable(String id, Panel parent, String x, String y) {
 		super(parent, x, y);
-		this.id = id;
+		setId(id);
 	}
 	/**
 	 * This is for use of creating a clickable that will reside on the panel in a free-floating
@@ -107,7 +115,7 @@ public abstract class Clickable extends MenuComponent implements TouchResponsive
 	@Deprecated(since="1.15")
 	public Clickable(String id, Panel parent, int x, int y) {
 		super(parent, x, y);
-		this.id = id;
+		setId(id);
 	}
 	/**
 	 * This is for use of creating a clickable that will reside on the panel in a grid
@@ -140,10 +148,17 @@ public abstract class Clickable extends MenuComponent implements TouchResponsive
 	public boolean clickableAt(int x, int y) {
 		if(!isEnabled() || clickBoundary==null) return false;
 		
-		Polygon polygon = new Polygon(clickBoundary[0], clickBoundary[1], clickBoundary[0].length);
-		if(polygon.contains(x, y))
-			return true;
-		return false;
+		if(boundaryPolygon == null)
+			boundaryPolygon = new Polygon();
+		if(boundaryChanged || boundaryPolygon.xpoints != clickBoundary[0]
+				|| boundaryPolygon.ypoints != clickBoundary[1]) {
+			boundaryPolygon.xpoints = clickBoundary[0];
+			boundaryPolygon.ypoints = clickBoundary[1];
+			boundaryPolygon.npoints = clickBoundary[0].length;
+			boundaryPolygon.invalidate();
+			boundaryChanged = false;
+		}
+		return boundaryPolygon.contains(x, y);
 	}
 	
 	/**
@@ -154,6 +169,37 @@ public abstract class Clickable extends MenuComponent implements TouchResponsive
 	 */
 	public void defineClickBoundary(int[][] clickBoundary) {
 		this.clickBoundary = clickBoundary;
+		boundaryChanged = true;
+	}
+	
+	/**
+	 * Defines the {@link #clickBoundary} as the rectangle given in rendering coordinates. The
+	 * corners are converted to true screen coordinates by the parent panel, as in {@link
+	 * Panel#handleOffsets(int[], int[], MenuComponent)}, but the arrays holding the boundary are
+	 * reused between calls. If there is no parent, the coordinates are used as they are given.
+	 * @param x the rendering x-position of the rectangle
+	 * @param y the rendering y-position of the rectangle
+	 * @param w the width of the rectangle
+	 * @param h the height of the rectangle
+	 */
+	public void defineClickBoundary(int x, int y, int w, int h) {
+		if(rectBoundary == null)
+			rectBoundary = new int[2][4];
+		int[] xs = rectBoundary[0];
+		int[] ys = rectBoundary[1];
+		if(parent != null) {
+			xs[0] = xs[3] = parent.toScreenX(x);
+			xs[1] = xs[2] = parent.toScreenX(x+w);
+			ys[0] = ys[1] = parent.toScreenY(y);
+			ys[2] = ys[3] = parent.toScreenY(y+h);
+		}else {
+			xs[0] = xs[3] = x;
+			xs[1] = xs[2] = x+w;
+			ys[0] = ys[1] = y;
+			ys[2] = ys[3] = y+h;
+		}
+		this.clickBoundary = rectBoundary;
+		boundaryChanged = true;
 	}
 	
 	/**
@@ -190,12 +236,18 @@ public abstract class Clickable extends MenuComponent implements TouchResponsive
 		return id;
 	}
 	/**
-	 * Sets the id of this component
+	 * Sets the id of this component. The component is reindexed under the new id in the root
+	 * panel of its tree so that {@link MenuManager#findComponent(String, Panel)} can find it.
 	 * @param id sets {@link #id}
 	 * @return this
 	 */
 	public Clickable setId(String id) {
+		Panel root = getRoot();
+		if(root != null)
+			root.unindexIds(this);
 		this.id = id;
+		if(root != null)
+			root.indexIds(this);
 		return this;
 	}
 	
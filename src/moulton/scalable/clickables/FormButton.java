@@ -41,7 +41,7 @@ public class FormButton extends Button implements TextInputComponent {
 	public FormButton(String id, String text, MenuManager menu, Panel parent, int x, int y,
 			Font font, Color color) {
 		super(text, parent, x, y, font, color);
-		this.id = id;
+		setId(id);
 		this.manager = menu;
 	}
 	
@@ -69,7 +69,7 @@ public class FormButton extends Button implements TextInputComponent {
 	public FormButton(String id, String text, MenuManager menu, Panel parent, String x, String y,
 			String width, String height, Font font, Color color) {
 		super(text, parent, x, y, width, height, font, color);
-		this.id = id;
+		setId(id);
 		this.manager = menu;
 	}
 
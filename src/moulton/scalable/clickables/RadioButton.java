@@ -58,7 +58,7 @@ public abstract class RadioButton extends Clickable {
 	@Deprecated(since="1.15")
 	public RadioButton(String id, Panel parent, String x, String y, Color color) {
 		super(parent, x, y);
-		this.id = id;
+		setId(id);
 		this.color = color;
 		if(color != null) {
 			colorDark = color.darker();
@@ -89,7 +89,7 @@ public abstract class RadioButton extends Clickable {
 	 */
 	public RadioButton(String id, Panel parent, int x, int y, Color color) {
 		super(parent, x, y);
-		this.id = id;
+		setId(id);
 		this.color = color;
 		if(color != null) {
 			colorDark = color.darker();
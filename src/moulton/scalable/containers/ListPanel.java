@@ -130,9 +130,12 @@ public class ListPanel extends VirtualPanel {
 	 * #see {@link #clearComponents()}
 	 */
 	public boolean removeComponent(int listIndex, boolean pull) {
+		MenuComponent removed = grid.getAt(0, listIndex);
 		boolean remove = grid.removeComponent(0, listIndex, !pull);
 		if(!remove)
 			return false;
+		if(removed != null)
+			getRoot().unindexIds(removed);
 		
 		if(pull) {
 			while(listIndex<grid.getGridHeight()-1) {
@@ -163,6 +166,11 @@ public class ListPanel extends VirtualPanel {
 		Collection<MenuComponent> comps = grid.getHeldComponents();
 		if(comps.isEmpty())
 			return;
+		Panel root = getRoot();
+		for(MenuComponent comp: comps) {
+			if(comp != null)
+				root.unindexIds(comp);
+		}
 		
 		//the linked list is the actual collection, so we can clear it
 		comps.clear();
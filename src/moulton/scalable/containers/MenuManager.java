@@ -2,7 +2,6 @@ package moulton.scalable.containers;
 
 import java.awt.Cursor;
 import java.awt.Graphics;
-import java.awt.Polygon;
 import java.awt.Toolkit;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.DataFlavor;
@@ -12,6 +11,7 @@ import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.KeyEvent;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import moulton.scalable.clickables.Clickable;
 import moulton.scalable.clickables.RadioButton;
@@ -37,6 +37,14 @@ import moulton.scalable.utils.MenuComponent;
  * ({@link #mousePressed(int, int)} and {@link #mouseReleased(int, int)}), and key typing
  * ({@link #keyTyped(char)} and {@link #keyPressed(int)}) as long as these event methods are being 
  * called, likely by {@link Container}.
+ * <p>
+ * The menu tree is not thread-safe. Rendering and events should occur on a single thread (such as
+ * the event dispatch thread), and any changes to the tree from other threads should be passed to
+ * {@link #queueUpdate(Runnable)}, which applies them at the start of the next render. A panel
+ * rendering never reads the live collections of its children, only arrays of them published when
+ * they change, so a child added or removed by another thread directly does not break the frame,
+ * though it may not be seen until the next one. Two threads must still not change the same panel at
+ * once.
  * @author Matthew Moulton
  */
 public abstract class MenuManager {
@@ -73,6 +81,11 @@ public abstract class MenuManager {
 	 * @see #addTouchResponsiveComponent(TouchResponsiveComponent)
 	 * @see #removeTouchResponsiveComponent(TouchResponsiveComponent)*/
 	protected LinkedList<TouchResponsiveComponent> touchCheckList = new LinkedList<>();
+	/**The most recently queued update to the menu tree, which links to those queued before it.
+	 * The whole chain is taken at once at the start of each render.
+	 * @see #queueUpdate(Runnable)
+	 * @see #applyQueuedUpdates()*/
+	private final AtomicReference<QueuedUpdate> queuedUpdates = new AtomicReference<>();
 	
 	/**A clickable that can be set to the next in a form chain if the next should just be a
 	 * deselection.*/
@@ -125,9 +138,9 @@ public abstract class MenuManager {
 	 */
 	public void mousePressed(int x, int y){
 		if(popup != null)
-			mousePressed(x,y,popup.getBase().getAllHeldComponents());
+			mousePressed(x,y,popup.getBase());
 		else if(menu != null)
-			mousePressed(x,y,menu.getAllHeldComponents());
+			mousePressed(x,y,menu);
 	}
 	/**
 	 * internal recursive mousePressed call
@@ -139,18 +152,39 @@ public abstract class MenuManager {
 		mouseX = x;
 		mouseY = y;
 		mousePressed = true;
-		for(MenuComponent mc:collection){
-			//check to see if it is a panel with components in grid
-			if(mc instanceof Panel){
-				Panel p = (Panel)mc;
-				mousePressed(x,y,p.getAllHeldComponents());
-			}else if(mc instanceof Clickable){
-				Clickable c = (Clickable)mc;
-				if(c.clickableAt(x,y)){ //is clicked
-					setClicked(c,x,y);
-				}else if(c.isClicked()){ //if something still thought it was clicked
-					c.setClicked(false, x, y);
-				}
+		for(MenuComponent mc:collection)
+			mousePressed(x,y,mc);
+	}
+	/**
+	 * Internal recursive mousePressed call. Iterates through the children of the panel without
+	 * copying them through {@link Panel#getHeldArray()}.
+	 * @param x the x position of the mouse relative to the JFrame
+	 * @param y the y position of the mouse relative to the JFrame
+	 * @param panel the panel whose children should be checked
+	 */
+	protected void mousePressed(int x, int y, Panel panel){
+		mouseX = x;
+		mouseY = y;
+		mousePressed = true;
+		for(MenuComponent mc: panel.getHeldArray())
+			mousePressed(x,y,mc);
+	}
+	/**
+	 * Checks whether the component (or for panels, any of its descendants) was clicked.
+	 * @param x the x position of the mouse relative to the JFrame
+	 * @param y the y position of the mouse relative to the JFrame
+	 * @param mc the component to check
+	 */
+	private void mousePressed(int x, int y, MenuComponent mc){
+		//check to see if it is a panel with components in grid
+		if(mc instanceof Panel){
+			mousePressed(x,y,(Panel)mc);
+		}else if(mc instanceof Clickable){
+			Clickable c = (Clickable)mc;
+			if(c.clickableAt(x,y)){ //is clicked
+				setClicked(c,x,y);
+			}else if(c.isClicked()){ //if something still thought it was clicked
+				c.setClicked(false, x, y);
 			}
 		}
 	}
@@ -197,7 +231,9 @@ public abstract class MenuManager {
 	/**
 	 * Call this when the mouse is scrolled. Positive values are down, and negative values are up.
 	 * The scroll will be passed to the scroll bar of the relevant touched {@link
-	 * ScrollableComponent}.
+	 * ScrollableComponent}. The relevant component is the innermost with a height scroll bar
+	 * that contains the mouse, as found in the scroll index ({@link Panel#getScrollIndex()})
+	 * built during the most recent render.
 	 * @param mouseX the x-position of the mouse when the scrolling occurred
 	 * @param mouseY the y-position of the mouse when the scrolling occurred
 	 * @param scrollAmount the amount that the mouse is scrolled.
@@ -212,52 +248,16 @@ public abstract class MenuManager {
 		if(searchIn == null)
 			return;
 		
-		MenuComponent found = findRelevantScrolledComponent(mouseX, mouseY, searchIn);
+		ScrollableComponent found = searchIn.getRoot().getScrollIndex().find(mouseX, mouseY);
 		if(found == null) //there is no relevant component
 			return;
-		ScrollBar toScroll = ((ScrollableComponent)found).getHeightScrollBar();
+		ScrollBar toScroll = found.getHeightScrollBar();
 		if(toScroll == null) //there is no scroll bar
 			return;
 		
 		toScroll.setOffset(toScroll.getOffset()+scrollAmount*toScroll.getScrollRate());
 	}
 	
-	/**
-	 * Recursive method to find the most specific boundaries 
-	 * @param mouseX the mouse's x-position at scroll time
-	 * @param mouseY the mouse's y-position at scroll time
-	 * @param checkComp the panel of components to search through
-	 * @return the MenuComponent most specific and that contains the x,y coordinate
-	 */
-	private MenuComponent findRelevantScrolledComponent(int mouseX, int mouseY,
-			MenuComponent checkComp) {
-		if(checkComp instanceof Panel) { //check children
-			Panel compPanel = (Panel)checkComp;
-			for(MenuComponent childComp: compPanel.getAllHeldComponents()) {
-				MenuComponent relevantScrolled =
-						findRelevantScrolledComponent(mouseX, mouseY, childComp);
-				if(relevantScrolled!=null) {
-					//must also have a vertical scroll bar
-					if(((ScrollableComponent)relevantScrolled).getHeightScrollBar()!=null)
-						return relevantScrolled;
-				}
-			}
-		}
-		
-		//if it was a panel, and the children resulted no, then maybe this is it
-		//but regardless, check this
-		if(checkComp instanceof ScrollableComponent) {
-			ScrollableComponent scrollable = (ScrollableComponent)checkComp;
-			int[][] activeCoords = scrollable.getActiveScrollCoordinates();
-			Polygon polygon = new Polygon(activeCoords[0], activeCoords[1], activeCoords[0].length);
-			//the component must have mouse coordinates and vertical scroll bar to be relevant
-			if(polygon.contains(mouseX, mouseY) && scrollable.getHeightScrollBar()!=null) {
-				return checkComp;
-			}
-		}
-		return null; //nothing found here...
-	}
-	
 	/**
 	 * Called when the component lost focus and may need to report changes. If the component has a
 	 * registered lost focus event {@link Clickable#getLostFocusAction()}, then that will be
@@ -326,6 +326,12 @@ public abstract class MenuManager {
 				}else if(key == (char)1) { //select all
 					c.selectAll();
 					return;
+				}else if(key == (char)26) { //undo
+					c.undo();
+					return;
+				}else if(key == (char)25) { //redo
+					c.redo();
+					return;
 				}
 			}
 		}
@@ -424,16 +430,66 @@ public abstract class MenuManager {
 	}
 	
 	/**
-	 * Renders the menu that is being managed ({@link #menu}).
+	 * Renders the menu that is being managed ({@link #menu}). Any updates queued by {@link
+	 * #queueUpdate(Runnable)} are applied first.
 	 * @param g the Graphics to render on
 	 */
 	public void render(Graphics g) {
+		applyQueuedUpdates();
 		if(menu != null)
 			menu.render(g, 0, 0, cont.getMenuWidth(), cont.getMenuHeight());
 		if(popup != null)
 			popup.render(g, cont.getMenuWidth(), cont.getMenuHeight());
 	}
 	
+	/**
+	 * Queues a change to the menu tree to be applied on the rendering thread at the start of the
+	 * next {@link #render(Graphics)}. This is how other threads (such as workers loading rows into
+	 * a {@link ListPanel}) should change the tree: all updates queued before a frame are applied
+	 * together, in the order they were queued, before any of the frame is drawn. Therefore
+	 * rendering and events never see the tree partially changed, and nothing on the rendering path
+	 * needs to lock.
+	 * <p>
+	 * This method may be called from any thread, and it never blocks.
+	 * @param update the change to apply to the tree
+	 */
+	public void queueUpdate(Runnable update) {
+		QueuedUpdate node = new QueuedUpdate(update);
+		QueuedUpdate prev;
+		do {
+			prev = queuedUpdates.get();
+			node.prev = prev;
+		}while(!queuedUpdates.compareAndSet(prev, node));
+	}
+	
+	/**
+	 * Applies all the updates queued by {@link #queueUpdate(Runnable)} since the last time this
+	 * was called, in the order they were queued. Updates queued while these are being applied
+	 * wait for the next call. If an update throws an exception, it is reported and the rest are
+	 * still applied. Called by {@link #render(Graphics)}.
+	 */
+	protected void applyQueuedUpdates() {
+		QueuedUpdate last = queuedUpdates.getAndSet(null);
+		if(last == null)
+			return;
+		//the chain is linked newest to oldest, so reverse it
+		QueuedUpdate first = null;
+		while(last != null) {
+			QueuedUpdate prev = last.prev;
+			last.prev = first;
+			first = last;
+			last = prev;
+		}
+		for(QueuedUpdate node = first; node != null; node = node.prev) {
+			try {
+				node.update.run();
+			}catch(RuntimeException e) {
+				System.err.println("There was an error in applying a queued menu update!");
+				e.printStackTrace(System.err);
+			}
+		}
+	}
+	
 	/**
 	 * @return true if {@link #menu} is not null. Otherwise, returns false.
 	 */
@@ -525,22 +581,50 @@ public abstract class MenuManager {
 	
 	/**
 	 * Finds the clickable component with the specified ID. It is assumed that there will only be
-	 * one since ID codes are intended to be unique. Uses the recursive method {@link
-	 * #findComponent(String, Panel, Panel)}.
+	 * one since ID codes are intended to be unique. The ID index kept by the root panel of the
+	 * start point's tree ({@link Panel#getIndexedComponent(String)}) is checked first. If the ID
+	 * has not been indexed, the recursive method {@link #findComponent(String, Panel, Panel)} is
+	 * used as a fallback and any result found is indexed for later lookups. An indexed component is
+	 * only returned if it is still held below the start point, which is checked by walking up
+	 * from it with {@link Panel#holds(MenuComponent)}. If it has left the tree without being
+	 * unindexed, its entry is removed.
 	 * @param idToFind the ID that should be matched in the found component
-	 * @param startPoint the panel where the searching should begin (for speed reasons). If no
-	 * panel is specified, the menu root panel ({@link #menu}) will be used as the starting point.
+	 * @param startPoint the panel where the searching should begin. If no panel is specified, the
+	 * menu root panel ({@link #menu}) will be used as the starting point.
 	 * @return the component found that has the matching ID, or if such component cannot be found,
 	 * null.
 	 */
 	public Clickable findComponent(String idToFind, Panel startPoint) {
+		if(idToFind == null)
+			return null;
 		if(startPoint==null) { //if start point not defined, use the root menu panel
 			if(hasMenu())
 				startPoint = menu;
 			else
 				return null;
 		}
-		return findComponent(idToFind, startPoint, startPoint);
+		Panel root = startPoint.getRoot();
+		Clickable indexed = root.getIndexedComponent(idToFind);
+		//the index may be stale if the component's id was changed without notification
+		if(indexed != null && idToFind.equals(indexed.getId())) {
+			boolean under = false;
+			MenuComponent child = indexed;
+			Panel parent = indexed.getParent();
+			while(parent != null && parent.holds(child)) {
+				under |= parent == startPoint;
+				child = parent;
+				parent = parent.getParent();
+			}
+			if(parent != null || child != root) //it left the tree without being unindexed
+				root.unindexIds(indexed);
+			else if(under)
+				return indexed;
+		}
+		
+		Clickable found = findComponent(idToFind, startPoint, startPoint);
+		if(found != null)
+			root.indexIds(found);
+		return found;
 	}
 	/**
 	 * The recursive method to find the component with the specified ID. Use {@link
@@ -559,12 +643,12 @@ public abstract class MenuManager {
 	 */
 	protected Clickable findComponent(String idToFind, Panel startPoint, Panel ignore) {
 		//search down
-		for(MenuComponent comp: startPoint.getAllHeldComponents()) {
-			if(comp == ignore || comp == null)
+		for(MenuComponent comp: startPoint.getHeldArray()) {
+			if(comp == ignore)
 				continue;
 			if(comp instanceof Clickable) {
 				Clickable c = (Clickable) comp;
-				if(c.getId().equals(idToFind))
+				if(idToFind.equals(c.getId()))
 					return c;
 			}else if(comp instanceof Panel) {
 				Clickable result = findComponent(idToFind, (Panel)comp, null);
@@ -579,4 +663,19 @@ public abstract class MenuManager {
 			return null;
 		return findComponent(idToFind, startPoint.getParent(), startPoint);
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * A node in the chain of updates queued by {@link MenuManager#queueUpdate(Runnable)}.
+	 */
+	private static class QueuedUpdate {
+		/**The change to apply.*/
+		final Runnable update;
+		/**The update queued before this one. Reversed to point to the next update once the chain
+		 * has been taken to be applied.*/
+		QueuedUpdate prev;
+		
+		QueuedUpdate(Runnable update) {
+			this.update = update;
+		}
+	}
+}
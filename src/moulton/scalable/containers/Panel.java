@@ -2,12 +2,17 @@ package moulton.scalable.containers;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 
+import moulton.scalable.clickables.Clickable;
 import moulton.scalable.clickables.TouchResponsiveComponent;
+import moulton.scalable.draggables.ScrollIndex;
+import moulton.scalable.draggables.ScrollableComponent;
 import moulton.scalable.utils.GridFormatter;
 import moulton.scalable.utils.MenuComponent;
 import moulton.scalable.utils.MenuSolver.Expression;
@@ -50,6 +55,21 @@ public class Panel extends MenuComponent {
 	 * expressions in the component that defines its location.
 	 */
 	protected LinkedList<MenuComponent> comps = new LinkedList<>();
+	/**
+	 * The non-null components of {@link #comps}, built again each time a free component is added
+	 * or removed. The array is never modified once built.
+	 * 
+	 * @see #freeComponentsChanged()
+	 */
+	private volatile MenuComponent[] free = new MenuComponent[0];
+	/**
+	 * All non-null components held by this panel, gridded components first, then free components,
+	 * along with the arrays of the grid and of {@link #free} it was joined from. When either of
+	 * those is replaced, a new one is joined the next time it is requested.
+	 * 
+	 * @see #getHeldArray()
+	 */
+	private volatile Held held = new Held(new MenuComponent[0], new MenuComponent[0]);
 
 	/**
 	 * The formatter for the grid-based components held by this panel.
@@ -80,6 +100,42 @@ public class Panel extends MenuComponent {
 	 * maximum widths.
 	 */
 	protected int lastWidth = 0;
+	/**
+	 * The height of the root panel of this panel's tree (in pixels) at last render. It is copied
+	 * from the parent by {@link #updateRenderOffset()} so that {@link MenuComponent} can find how
+	 * much text should resize without walking up to the root.
+	 * 
+	 * @see #getRootHeight()
+	 */
+	protected int rootHeight = 0;
+	/**
+	 * The clickable components in this panel's tree keyed by their IDs. Only used when this panel
+	 * is a root panel (has no parent). Components are indexed as they receive IDs or are moved
+	 * into the tree, and are removed from the index as they are removed from the tree.
+	 * 
+	 * @see #indexIds(MenuComponent)
+	 * @see #unindexIds(MenuComponent)
+	 * @see #getIndexedComponent(String)
+	 */
+	private HashMap<String, Clickable> idIndex = null;
+	/**
+	 * The scrollable regions rendered in this panel's tree during the last render. Only used when
+	 * this panel is a root panel (has no parent).
+	 * 
+	 * @see #getScrollIndex()
+	 * @see #renderChild(MenuComponent, Graphics, int, int, int, int)
+	 */
+	private ScrollIndex scrollIndex = null;
+	/**
+	 * The render offset of this panel's children as of the last render, in the format described
+	 * by {@link #getRenderOffset(MenuComponent)}. It is computed once per render by
+	 * {@link #updateRenderOffset()} from the parent's value, so that children can convert their
+	 * coordinates to true screen coordinates without walking up the tree.
+	 * 
+	 * @see #toScreenX(int)
+	 * @see #toScreenY(int)
+	 */
+	protected final int[] renderOffset = { 0, 0, -1, -1 };
 
 	/**
 	 * @param parent the panel this panel will reside upon. Null if this is being set to
@@ -131,6 +187,9 @@ public class Panel extends MenuComponent {
 		int h = rect.height;
 		lastHeight = h;
 		lastWidth = w;
+		updateRenderOffset();
+		if (parent == null)
+			getScrollIndex().clear();
 
 		// draw color
 		if (color != null) {
@@ -141,35 +200,67 @@ public class Panel extends MenuComponent {
 		if (outline)
 			g.drawRect(x, y, w - 1, h - 1);
 
-		try {
-			// now draw any components in the grid
-			for (MenuComponent mc : grid.getHeldComponents()) {
-				if (mc != null && mc.isVisible()) {
+		// draw the grid components, then any free components
+		for (MenuComponent mc : getHeldArray()) {
+			if (mc.isVisible()) {
+				if (mc.getGridLocation() != null) {
 					Rectangle selfDim = new Rectangle(x, y, w, h);
 					Rectangle dimDetails = grid.findCompCoordinates(mc, selfDim);
 					// gridded components have a very specific space where they should be
-					mc.render(g, dimDetails.x, dimDetails.y, dimDetails.width, dimDetails.height);
-				}
+					renderChild(mc, g, dimDetails.x, dimDetails.y, dimDetails.width,
+							dimDetails.height);
+				} else // free components are drawn anywhere in this panel
+					renderChild(mc, g, x, y, w, h);
 			}
-
-			// now time to draw any free components
-			for (MenuComponent mc : comps) {
-				if (mc != null && mc.isVisible()) { // free components are drawn anywhere in this
-													// panel.
-					mc.render(g, x, y, w, h);
-				}
-			}
-		} catch (ConcurrentModificationException cme) {
-			System.err.println("There was a concurrent access of the components in the panel.");
 		}
 	}
 
+	/**
+	 * Renders the child component in the space given. If the child is a
+	 * {@link ScrollableComponent}, its active scrolling region is registered in the scroll index
+	 * of the root panel once it has rendered, so that {@link MenuManager#mouseScrolled(int, int,
+	 * int)} can find it without searching the tree.
+	 * 
+	 * @param mc the child component to render
+	 * @param g  the graphics object to draw on
+	 * @param xx the x-position of the space given to the child
+	 * @param yy the y-position of the space given to the child
+	 * @param ww the width of the space given to the child
+	 * @param hh the height of the space given to the child
+	 */
+	protected void renderChild(MenuComponent mc, Graphics g, int xx, int yy, int ww, int hh) {
+		if (mc instanceof ScrollableComponent) {
+			ScrollIndex index = getRoot().getScrollIndex();
+			int nestedStart = index.size();
+			mc.render(g, xx, yy, ww, hh);
+			index.add((ScrollableComponent) mc, nestedStart);
+		} else
+			mc.render(g, xx, yy, ww, hh);
+	}
+
+	/**
+	 * Returns the index of scrollable regions drawn in the most recent render. Only root panels
+	 * keep an index, so this should be called on the panel returned by {@link #getRoot()}. The
+	 * index is cleared each time the root panel begins rendering.
+	 * 
+	 * @return {@link #scrollIndex}
+	 */
+	public ScrollIndex getScrollIndex() {
+		if (scrollIndex == null)
+			scrollIndex = new ScrollIndex();
+		return scrollIndex;
+	}
+
 	/**
 	 * Although Panel tells its children components to render where they truly are on the screen,
 	 * offset is allowed to be use in subclasses. For example, {@link VirtualPanel} uses a subimage
 	 * which components are drawn on, and that subimage is later drawn onto the screen. Children
 	 * components may need to get their true location on the screen, for use in mouse touch and
 	 * clicking boundaries for example.
+	 * <p>
+	 * The offset is computed once per render and saved in {@link #renderOffset}. This returns a
+	 * copy of that value. Components that only need to convert coordinates should prefer
+	 * {@link #toScreenX(int)} and {@link #toScreenY(int)}, which do not allocate.
 	 * 
 	 * @param comp the companion to find the render offset for
 	 * @return a four element long pixel array for interpreting the render coordinates in terms of
@@ -187,11 +278,59 @@ public class Panel extends MenuComponent {
 	 *         negative values are to be interpreted as there being no cut off.
 	 */
 	public int[] getRenderOffset(MenuComponent comp) {
-		if (parent != null) { // get the parent panel's values
-			int[] offs = parent.getRenderOffset(this);
-			return offs;
-		} else
-			return new int[] { 0, 0, -1, -1 };
+		return renderOffset.clone();
+	}
+
+	/**
+	 * Computes {@link #renderOffset} and {@link #rootHeight} for this render. Called by
+	 * {@link #render(Graphics, int, int, int, int)} once the dimensions of this panel are known and
+	 * before any children are rendered. Since the parent has already rendered, its values are up
+	 * to date and are simply copied. Subclasses which draw their children with an offset, such as
+	 * {@link VirtualPanel}, should override this to apply it.
+	 */
+	protected void updateRenderOffset() {
+		if (parent == null) {
+			renderOffset[0] = 0;
+			renderOffset[1] = 0;
+			renderOffset[2] = -1;
+			renderOffset[3] = -1;
+			rootHeight = lastHeight;
+		} else {
+			System.arraycopy(parent.renderOffset, 0, renderOffset, 0, 4);
+			rootHeight = parent.rootHeight;
+		}
+	}
+
+	/**
+	 * Converts an x-position that a child component was told to render at to its true
+	 * x-position on the screen, cutting it off if it lies outside of the visible area. See
+	 * {@link #getRenderOffset(MenuComponent)} for details.
+	 * 
+	 * @param x the rendering x position
+	 * @return the true x position
+	 */
+	public int toScreenX(int x) {
+		if (x < 0)
+			x = 0;
+		if (x > renderOffset[2] && renderOffset[2] > -1)
+			x = renderOffset[2];
+		return x + renderOffset[0];
+	}
+
+	/**
+	 * Converts a y-position that a child component was told to render at to its true
+	 * y-position on the screen, cutting it off if it lies outside of the visible area. See
+	 * {@link #getRenderOffset(MenuComponent)} for details.
+	 * 
+	 * @param y the rendering y position
+	 * @return the true y position
+	 */
+	public int toScreenY(int y) {
+		if (y < 0)
+			y = 0;
+		if (y > renderOffset[3] && renderOffset[3] > -1)
+			y = renderOffset[3];
+		return y + renderOffset[1];
 	}
 
 	/**
@@ -200,7 +339,7 @@ public class Panel extends MenuComponent {
 	 * component is told for rendering are not necessarily correct. Thus
 	 * {@link #getRenderOffset(MenuComponent)} can be called to get the offsets that define how far
 	 * the x and y components are from their true values, and if any cutting off occurred. For
-	 * single coordinate queries, it is likely easier to calculate from the render offset method,
+	 * single coordinate queries, {@link #toScreenX(int)} and {@link #toScreenY(int)} can be used,
 	 * but when a larger number of points need to be handled, this method can be used.
 	 * 
 	 * @param xs          the rendering x positions
@@ -210,23 +349,10 @@ public class Panel extends MenuComponent {
 	 * 		   are in index 1. Therefore, {xs, ys}.
 	 */
 	public int[][] handleOffsets(int[] xs, int[] ys, MenuComponent callingComp) {
-		int[] offs = getRenderOffset(callingComp);
-		if (offs != null) {
-			for (int i = 0; i < xs.length; i++) {
-				if (xs[i] < 0)
-					xs[i] = 0;
-				if (xs[i] > offs[2] && offs[2] > -1)
-					xs[i] = offs[2];
-				xs[i] += offs[0];
-			}
-			for (int i = 0; i < ys.length; i++) {
-				if (ys[i] < 0)
-					ys[i] = 0;
-				if (ys[i] > offs[3] && offs[3] > -1)
-					ys[i] = offs[3];
-				ys[i] += offs[1];
-			}
-		}
+		for (int i = 0; i < xs.length; i++)
+			xs[i] = toScreenX(xs[i]);
+		for (int i = 0; i < ys.length; i++)
+			ys[i] = toScreenY(ys[i]);
 		return new int[][] { xs, ys };
 	}
 
@@ -241,6 +367,9 @@ public class Panel extends MenuComponent {
 	 * @return whether the addition of the component was successful
 	 */
 	public boolean addToGrid(MenuComponent comp, int x, int y) {
+		MenuComponent displaced = grid.getAt(x, y);
+		if (displaced != null && displaced != comp)
+			getRoot().unindexIds(displaced);
 		grid.addComponent(comp, x, y);
 		return true;
 	}
@@ -254,7 +383,11 @@ public class Panel extends MenuComponent {
 	 * @return whether a component was removed at (x,y)
 	 */
 	public boolean removeFromGrid(int x, int y, boolean resize) {
-		return grid.removeComponent(x, y, resize);
+		MenuComponent comp = grid.getAt(x, y);
+		boolean removed = grid.removeComponent(x, y, resize);
+		if (removed && comp != null)
+			getRoot().unindexIds(comp);
+		return removed;
 	}
 
 	/**
@@ -320,6 +453,78 @@ public class Panel extends MenuComponent {
 			return textResize;
 	}
 
+	/**
+	 * Returns the root panel of this panel's tree. If this panel has no parent, it is the root.
+	 * 
+	 * @return the root panel
+	 */
+	@Override
+	public Panel getRoot() {
+		Panel panel = this;
+		while (panel.parent != null)
+			panel = panel.parent;
+		return panel;
+	}
+
+	/**
+	 * Adds the given component to the ID index if it is a clickable with a non-null ID. If the
+	 * component is a panel, all of its descendants are indexed as well. This should be called on
+	 * the root panel of the tree that the component resides in, which {@link MenuComponent} and
+	 * {@link Clickable} do automatically when the component is reparented or its ID is set. If
+	 * multiple components share an ID, the most recently indexed is kept.
+	 * 
+	 * @param comp the component to index
+	 * @see #getIndexedComponent(String)
+	 */
+	public void indexIds(MenuComponent comp) {
+		if (comp instanceof Clickable) {
+			String id = ((Clickable) comp).getId();
+			if (id != null) {
+				if (idIndex == null)
+					idIndex = new HashMap<>();
+				idIndex.put(id, (Clickable) comp);
+			}
+		} else if (comp instanceof Panel) {
+			for (MenuComponent child : ((Panel) comp).getHeldArray())
+				indexIds(child);
+		}
+	}
+
+	/**
+	 * Removes the given component, and all of its descendants if it is a panel, from the ID
+	 * index. This should be called on the root panel of the tree that the component is leaving.
+	 * An ID is only removed if it is still mapped to the given component.
+	 * 
+	 * @param comp the component to remove from the index
+	 * @see #indexIds(MenuComponent)
+	 */
+	public void unindexIds(MenuComponent comp) {
+		if (idIndex == null)
+			return;
+		if (comp instanceof Clickable) {
+			String id = ((Clickable) comp).getId();
+			if (id != null && idIndex.get(id) == comp)
+				idIndex.remove(id);
+		} else if (comp instanceof Panel) {
+			for (MenuComponent child : ((Panel) comp).getHeldArray())
+				unindexIds(child);
+		}
+	}
+
+	/**
+	 * Returns the clickable indexed by the given ID in this panel's tree. Only root panels keep
+	 * an index, so this should be called on the panel returned by {@link #getRoot()}.
+	 * 
+	 * @param id the ID to look up
+	 * @return the indexed component, or null if no component has been indexed with the ID
+	 * @see MenuManager#findComponent(String, Panel)
+	 */
+	public Clickable getIndexedComponent(String id) {
+		if (idIndex == null || id == null)
+			return null;
+		return idIndex.get(id);
+	}
+
 	/**
 	 * Returns the height of this panel at the last render
 	 * 
@@ -329,19 +534,93 @@ public class Panel extends MenuComponent {
 		return lastHeight;
 	}
 
+	/**
+	 * Returns the height of the root panel of this panel's tree at the last render of this panel.
+	 * 
+	 * @return {@link #rootHeight}
+	 * @see #getRoot()
+	 */
+	public int getRootHeight() {
+		return rootHeight;
+	}
+
 	/**
 	 * Returns a list of all of the child components that this panel holds. By default,
-	 * {@link #grid} is added to the list, then {@link #comps}.
+	 * {@link #grid} is added to the list, then {@link #comps}. The list returned is a new copy,
+	 * so traversals which run often should use {@link #getHeldCount()} and
+	 * {@link #getHeldComponent(int)} instead.
 	 * 
 	 * @return the array of all held menu components
 	 */
 	public ArrayList<MenuComponent> getAllHeldComponents() {
-		ArrayList<MenuComponent> gridComps = new ArrayList<>();
-		gridComps.addAll(grid.getHeldComponents());
-		ArrayList<MenuComponent> both = new ArrayList<>(gridComps.size() + comps.size());
-		both.addAll(gridComps);
-		both.addAll(comps);
-		return both;
+		return new ArrayList<>(Arrays.asList(getHeldArray()));
+	}
+
+	/**
+	 * Returns the array of all non-null child components that this panel holds, gridded
+	 * components first, then free components. The array is shared and must not be modified. It is
+	 * only rebuilt once the children have changed, so it can be iterated without allocation and
+	 * stays unchanged if the children change during iteration.
+	 * <p>
+	 * The arrays it is joined from are built by the thread which adds or removes a child, when it
+	 * does so, so this never reads the live collections of children. A thread rendering the panel
+	 * therefore sees either the children from before a change or those after it, even if the change
+	 * is made by another thread.
+	 * <p>
+	 * Subclasses which hold their children differently, like {@link PartitionPanel}, should
+	 * override this along with {@link #getAllHeldComponents()}.
+	 * 
+	 * @return the array of {@link #held}
+	 */
+	protected MenuComponent[] getHeldArray() {
+		Held held = this.held;
+		MenuComponent[] gridded = grid.getHeldArray(), free = this.free;
+		if (held.gridded != gridded || held.free != free) {
+			held = new Held(gridded, free);
+			this.held = held;
+		}
+		return held.all;
+	}
+
+	/**
+	 * Returns whether the component is one of the children of this panel. A component keeps its
+	 * {@link MenuComponent#getParent()} if it is removed from {@link #grid} directly, so this
+	 * checks the children themselves.
+	 * 
+	 * @param comp the component to look for
+	 * @return whether this panel holds the component
+	 */
+	public boolean holds(MenuComponent comp) {
+		Point location = comp.getGridLocation();
+		if (location != null && grid.getAt(location.x, location.y) == comp)
+			return true;
+		for (MenuComponent mc : getHeldArray()) {
+			if (mc == comp)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of non-null child components that this panel holds. Use with
+	 * {@link #getHeldComponent(int)} to iterate over the children without allocation.
+	 * 
+	 * @return the number of held components
+	 */
+	public int getHeldCount() {
+		return getHeldArray().length;
+	}
+
+	/**
+	 * Returns the held component at the given index, in the same order as
+	 * {@link #getAllHeldComponents()}.
+	 * 
+	 * @param index the index of the child, from 0 (inclusive) to {@link #getHeldCount()}
+	 *              (exclusive)
+	 * @return the child component at the index
+	 */
+	public MenuComponent getHeldComponent(int index) {
+		return getHeldArray()[index];
 	}
 
 	/**
@@ -361,7 +640,12 @@ public class Panel extends MenuComponent {
 	 * @return whether the component was successfully removed
 	 */
 	public boolean removeFreeComponent(MenuComponent comp) {
-		return comps.remove(comp);
+		boolean removed = comps.remove(comp);
+		if (removed) {
+			freeComponentsChanged();
+			getRoot().unindexIds(comp);
+		}
+		return removed;
 	}
 
 	/**
@@ -371,7 +655,22 @@ public class Panel extends MenuComponent {
 	 * @return returns whether the add was successful
 	 */
 	public boolean addFreeComponent(MenuComponent comp) {
-		return comps.add(comp);
+		boolean added = comps.add(comp);
+		freeComponentsChanged();
+		return added;
+	}
+
+	/**
+	 * Builds {@link #free} again from {@link #comps}. Subclasses which change {@link #comps}
+	 * directly must call this afterwards.
+	 */
+	protected void freeComponentsChanged() {
+		ArrayList<MenuComponent> list = new ArrayList<>(comps.size());
+		for (MenuComponent mc : comps) {
+			if (mc != null)
+				list.add(mc);
+		}
+		free = list.toArray(new MenuComponent[list.size()]);
 	}
 
 	/**
@@ -382,7 +681,7 @@ public class Panel extends MenuComponent {
 	 *                {@link MenuManager#removeTouchResponsiveComponent(TouchResponsiveComponent)}.
 	 */
 	public void removeTouchResponsiveness(MenuManager manager) {
-		for (MenuComponent comp : getAllHeldComponents()) {
+		for (MenuComponent comp : getHeldArray()) {
 			if (comp instanceof TouchResponsiveComponent)
 				manager.removeTouchComponent((TouchResponsiveComponent) comp);
 			if (comp instanceof Panel)
@@ -393,4 +692,18 @@ public class Panel extends MenuComponent {
 			manager.removeTouchComponent((TouchResponsiveComponent) this);
 	}
 
+	/**
+	 * The children of a panel joined into one array, with the arrays they were joined from.
+	 */
+	private static class Held {
+		private final MenuComponent[] gridded, free, all;
+
+		private Held(MenuComponent[] gridded, MenuComponent[] free) {
+			this.gridded = gridded;
+			this.free = free;
+			all = Arrays.copyOf(gridded, gridded.length + free.length);
+			System.arraycopy(free, 0, all, gridded.length, free.length);
+		}
+	}
+
 }
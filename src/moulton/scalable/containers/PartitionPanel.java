@@ -4,7 +4,6 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
 
 import moulton.scalable.utils.MenuComponent;
 import moulton.scalable.utils.MenuSolver.Expression;
@@ -45,6 +44,9 @@ public class PartitionPanel extends Panel {
 	 * @see #setBottomLeftCorner(Boolean)
 	 * @see #setBottomRightCorner(Boolean)*/
 	protected Boolean topLeftCorner, topRightCorner, bottomLeftCorner, bottomRightCorner;
+	/**The non-null sector components, rebuilt when a sector is set. Null when it must be rebuilt.
+	 * @see #getHeldArray()*/
+	private MenuComponent[] sectors = null;
 	
 	/**Creates a partition panel in free form in the parent panel.
 	 * @param parent the parent panel to be rendered on
@@ -103,22 +105,44 @@ public class PartitionPanel extends Panel {
 	/**Sets the component in the left sector.
 	 * @param comp {@link #left}*/
 	public void setLeft(MenuComponent comp) {
+		replace(this.left, comp);
 		this.left = comp;
+		sectors = null;
 	}
 	/**Sets the component in the right sector.
 	 * @param comp {@link #right}*/
 	public void setRight(MenuComponent comp) {
+		replace(this.right, comp);
 		this.right = comp;
+		sectors = null;
 	}
 	/**Sets the component in the top sector.
 	 * @param comp {@link #top}*/
 	public void setTop(MenuComponent comp) {
+		replace(this.top, comp);
 		this.top = comp;
+		sectors = null;
 	}
 	/**Sets the component in the bottom sector.
 	 * @param comp {@link #bottom}*/
 	public void setBottom(MenuComponent comp) {
+		replace(this.bottom, comp);
 		this.bottom = comp;
+		sectors = null;
+	}
+	
+	/**
+	 * Moves the IDs of the component leaving a sector out of the index of the root panel, and
+	 * those of the component entering it into the index.
+	 * @param old the component previously in the sector, or null
+	 * @param comp the component now in the sector, or null
+	 */
+	private void replace(MenuComponent old, MenuComponent comp) {
+		Panel root = getRoot();
+		if(old != null && old != comp)
+			root.unindexIds(old);
+		if(comp != null)
+			root.indexIds(comp);
 	}
 	
 	/**Sets how the top left corner should be drawn.
@@ -176,6 +200,19 @@ public class PartitionPanel extends Panel {
 		return list;
 	}
 	
+	@Override
+	protected MenuComponent[] getHeldArray() {
+		if(sectors == null) {
+			ArrayList<MenuComponent> list = new ArrayList<MenuComponent>(4);
+			for(MenuComponent comp: new MenuComponent[] {left, right, top, bottom}) {
+				if(comp != null)
+					list.add(comp);
+			}
+			sectors = list.toArray(new MenuComponent[list.size()]);
+		}
+		return sectors;
+	}
+	
 	@Override
 	public void render(Graphics g, int xx, int yy, int ww, int hh) {
 		Rectangle rect = this.getRenderRect(xx, yy, ww, hh, width, height);
@@ -184,6 +221,9 @@ public class PartitionPanel extends Panel {
 		int w = rect.width;
 		int h = rect.height;
 		lastHeight = h;
+		updateRenderOffset();
+		if(parent == null)
+			getScrollIndex().clear();
 
 		// draw color
 		if(color!=null){
@@ -200,42 +240,38 @@ public class PartitionPanel extends Panel {
 		if(horizontalPartition != null)
 			horizPartition = solve.eval(this.horizontalPartition);
 		
-		try{
-			if(left != null && left.isVisible()) {
-				int sectorTop = horizPartition;
-				int sectorBot = horizPartition;
-				if((topLeftCorner==null && top==null) || topLeftCorner.booleanValue())
-					sectorTop = y;
-				if((bottomLeftCorner==null && bottom==null) || bottomLeftCorner.booleanValue())
-					sectorBot = y+h;
-				left.render(g, 0, sectorTop, vertPartition, sectorBot-sectorTop);
-			}if(right != null && right.isVisible()) {
-				int sectorTop = horizPartition;
-				int sectorBot = horizPartition;
-				if((topRightCorner==null && top==null) || topRightCorner.booleanValue())
-					sectorTop = y;
-				if((bottomRightCorner==null && bottom==null) || bottomRightCorner.booleanValue())
-					sectorBot = y+h;
-				right.render(g, vertPartition, sectorTop, w-vertPartition, sectorBot-sectorTop);
-			}if(top != null && top.isVisible()) {
-				int sectorLft = vertPartition;
-				int sectorRgt = vertPartition;
-				if((topLeftCorner==null && left==null) || !topLeftCorner.booleanValue())
-					sectorLft = x;
-				if((topRightCorner==null && right==null) || !topRightCorner.booleanValue())
-					sectorRgt = x+w;
-				top.render(g, sectorLft, 0, sectorRgt-sectorLft, horizPartition);
-			}if(bottom != null && bottom.isVisible()) {
-				int sectorLft = vertPartition;
-				int sectorRgt = vertPartition;
-				if((bottomLeftCorner==null && left==null) || !bottomLeftCorner.booleanValue())
-					sectorLft = x;
-				if((bottomRightCorner==null && right==null) || !bottomRightCorner.booleanValue())
-					sectorRgt = x+w;
-				bottom.render(g, sectorLft, horizPartition, sectorRgt-sectorLft, h-horizPartition);
-			}
-		}catch(ConcurrentModificationException cme){
-			System.err.println("There was a concurrent access of the components in the panel.");
+		if(left != null && left.isVisible()) {
+			int sectorTop = horizPartition;
+			int sectorBot = horizPartition;
+			if((topLeftCorner==null && top==null) || topLeftCorner.booleanValue())
+				sectorTop = y;
+			if((bottomLeftCorner==null && bottom==null) || bottomLeftCorner.booleanValue())
+				sectorBot = y+h;
+			renderChild(left, g, 0, sectorTop, vertPartition, sectorBot-sectorTop);
+		}if(right != null && right.isVisible()) {
+			int sectorTop = horizPartition;
+			int sectorBot = horizPartition;
+			if((topRightCorner==null && top==null) || topRightCorner.booleanValue())
+				sectorTop = y;
+			if((bottomRightCorner==null && bottom==null) || bottomRightCorner.booleanValue())
+				sectorBot = y+h;
+			renderChild(right, g, vertPartition, sectorTop, w-vertPartition, sectorBot-sectorTop);
+		}if(top != null && top.isVisible()) {
+			int sectorLft = vertPartition;
+			int sectorRgt = vertPartition;
+			if((topLeftCorner==null && left==null) || !topLeftCorner.booleanValue())
+				sectorLft = x;
+			if((topRightCorner==null && right==null) || !topRightCorner.booleanValue())
+				sectorRgt = x+w;
+			renderChild(top, g, sectorLft, 0, sectorRgt-sectorLft, horizPartition);
+		}if(bottom != null && bottom.isVisible()) {
+			int sectorLft = vertPartition;
+			int sectorRgt = vertPartition;
+			if((bottomLeftCorner==null && left==null) || !bottomLeftCorner.booleanValue())
+				sectorLft = x;
+			if((bottomRightCorner==null && right==null) || !bottomRightCorner.booleanValue())
+				sectorRgt = x+w;
+			renderChild(bottom, g, sectorLft, horizPartition, sectorRgt-sectorLft, h-horizPartition);
 		}
 	}
 
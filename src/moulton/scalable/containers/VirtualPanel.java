@@ -4,8 +4,6 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
 
 import moulton.scalable.draggables.ScrollBar;
 import moulton.scalable.draggables.ScrollableComponent;
@@ -66,6 +64,9 @@ public class VirtualPanel extends Panel implements ScrollableComponent{
 	protected Expression heightBarTotalOffsets;
 	/**The coordinates of the panel at last render*/
 	protected int lastX=0, lastY=0;
+	/**The active scroll coordinates of this panel, updated each render.
+	 * @see #getActiveScrollCoordinates()*/
+	protected int[][] scrollCoords = new int[2][4];
 	
 	/**
 	 * @param parent the panel this panel will reside upon.
@@ -121,6 +122,9 @@ public class VirtualPanel extends Panel implements ScrollableComponent{
 		//width and height stay the same regardless of the offset
 		lastWidth = w;
 		lastHeight = h;
+		updateRenderOffset();
+		if(parent == null)
+			getScrollIndex().clear();
 		
 		//the full dimensions
 		lastFullW = solve.eval(fullWidth);
@@ -175,21 +179,15 @@ public class VirtualPanel extends Panel implements ScrollableComponent{
 			show.fillRect(0, 0, w, h);
 		}
 		//draw the components onto the buffered image and then draw it onto the menu
-		ArrayList<MenuComponent> both = getAllHeldComponents();
-
-		try{
-			for(MenuComponent mc: both) {
-				if(mc!=null && mc.isVisible()) {
-					//render each component onto the image with full dimensions.
-					Rectangle self = new Rectangle(-xOffs, -yOffs, lastFullW, lastFullH);
-					if(mc.getGridLocation() != null)
-						self = grid.findCompCoordinates(mc, self);
-					
-					mc.render(show, self.x, self.y, self.width, self.height);
-				}
+		for(MenuComponent mc: getHeldArray()) {
+			if(mc.isVisible()) {
+				//render each component onto the image with full dimensions.
+				Rectangle self = new Rectangle(-xOffs, -yOffs, lastFullW, lastFullH);
+				if(mc.getGridLocation() != null)
+					self = grid.findCompCoordinates(mc, self);
+				
+				renderChild(mc, show, self.x, self.y, self.width, self.height);
 			}
-		}catch(ConcurrentModificationException cme){
-			System.err.println("There was a concurrent access of the components in the panel.");
 		}
 		
 		//draw outline
@@ -198,6 +196,9 @@ public class VirtualPanel extends Panel implements ScrollableComponent{
 			show.drawRect(0, 0, w - 1, h - 1);
 		}
 		g.drawImage(shown, x, y, null);
+		//a root panel is not rendered by a parent, so it registers itself around all it holds
+		if(parent == null)
+			getScrollIndex().add(this, 0);
 	}
 
 	/**
@@ -254,41 +255,52 @@ public class VirtualPanel extends Panel implements ScrollableComponent{
 	public ScrollBar getHeightScrollBar() {
 		return heightBar;
 	}
+	/**
+	 * Returns the true rectangle of this panel on the screen as of the last render. The array
+	 * returned is reused between renders.
+	 */
 	@Override
 	public int[][] getActiveScrollCoordinates() {
-		int[] offs = getRenderOffset(this);
-		return new int[][] {{offs[0], offs[0]+offs[2], offs[0]+offs[2], offs[0]},
-							{offs[1], offs[1], offs[1]+offs[3], offs[1]+offs[3]}};
+		int[] offs = renderOffset;
+		scrollCoords[0][0] = offs[0];
+		scrollCoords[0][1] = offs[0]+offs[2];
+		scrollCoords[0][2] = offs[0]+offs[2];
+		scrollCoords[0][3] = offs[0];
+		scrollCoords[1][0] = offs[1];
+		scrollCoords[1][1] = offs[1];
+		scrollCoords[1][2] = offs[1]+offs[3];
+		scrollCoords[1][3] = offs[1]+offs[3];
+		return scrollCoords;
 	}
 	
 	/**
-	 * The VirtualPanel gets the offset from its parent panel ({@link
-	 * Panel#getRenderOffset(MenuComponent)}), then adds the offset this has saved from the last
-	 * render, saved as {@link #lastX} and {@link #lastY}.
+	 * The VirtualPanel takes the offset from its parent panel, then adds the offset this has saved
+	 * from the last render, saved as {@link #lastX} and {@link #lastY}. The cut offs are reduced
+	 * to the shown dimensions of this panel.
 	 */
 	@Override
-	public int[] getRenderOffset(MenuComponent comp) {
+	protected void updateRenderOffset() {
 		//all the offsets and parent work set in super
-		int[] parentOffset = super.getRenderOffset(comp);
+		super.updateRenderOffset();
+		int[] offs = renderOffset;
 		
-		if(parentOffset[2]>-1) {
-			parentOffset[2] = Math.min(parentOffset[2]-lastX, lastWidth);
-			if(parentOffset[2]<0) parentOffset[2] = 0;
+		if(offs[2]>-1) {
+			offs[2] = Math.min(offs[2]-lastX, lastWidth);
+			if(offs[2]<0) offs[2] = 0;
 		}else
-			parentOffset[2] = lastWidth;
-		if(parentOffset[3]>-1) {
-			parentOffset[3] = Math.min(parentOffset[3]-lastY, lastHeight);
-			if(parentOffset[3]<0) parentOffset[3] = 0;
+			offs[2] = lastWidth;
+		if(offs[3]>-1) {
+			offs[3] = Math.min(offs[3]-lastY, lastHeight);
+			if(offs[3]<0) offs[3] = 0;
 		}else
-			parentOffset[3] = lastHeight;
+			offs[3] = lastHeight;
 		
-		if(parentOffset[0] < 0)
-			parentOffset[0] = 0;
-		if(parentOffset[1] < 0)
-			parentOffset[1] = 0;
-		parentOffset[0] += lastX;
-		parentOffset[1] += lastY;
-		return parentOffset;
+		if(offs[0] < 0)
+			offs[0] = 0;
+		if(offs[1] < 0)
+			offs[1] = 0;
+		offs[0] += lastX;
+		offs[1] += lastY;
 	}
 	
 	/**
@@ -160,8 +160,7 @@ public class ScrollBar extends Clickable implements DraggableComponent {
 			g.drawRect(cx, cy, cw-1, ch-1);
 		}
 		if(parent != null)
-			defineClickBoundary(parent.handleOffsets(new int[] {cx, cx+cw, cx+cw, cx},
-													new int[] {cy, cy, cy+ch, cy+ch}, this));
+			defineClickBoundary(cx, cy, cw, ch);
 	}
 
 	/**
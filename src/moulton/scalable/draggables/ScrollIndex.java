@@ -0,0 +1,135 @@
+package moulton.scalable.draggables;
+
+import java.util.Arrays;
+
+import moulton.scalable.containers.MenuManager;
+import moulton.scalable.containers.Panel;
+
+/**
+ * Holds the regions of the {@link ScrollableComponent}s drawn in the most recent render of a
+ * menu tree. Each root {@link Panel} keeps one of these (see {@link Panel#getScrollIndex()}),
+ * clears it when a new render begins, and registers each scrollable child after it has been
+ * rendered. The {@link MenuManager} can then resolve which component a mouse wheel event should
+ * scroll through {@link #find(int, int)} without searching the whole tree.
+ * <p>
+ * Regions are stored in post-order: a scrollable is added after all the scrollables nested
+ * within it, and each entry remembers where its nested entries begin. Thus the search only steps
+ * through siblings, descending only into the regions which contain the point, and neither
+ * registration (once the arrays have grown) nor searching allocate any objects.
+ * <p>
+ * Regions are saved as the bounding box of {@link ScrollableComponent#getActiveScrollCoordinates()}.
+ * @author Matthew Moulton
+ */
+public class ScrollIndex {
+	/**The scrollable components registered, in post-order.*/
+	protected ScrollableComponent[] comps = new ScrollableComponent[8];
+	/**The bounding box of each region, stored as four consecutive values: minimum x, minimum y,
+	 * maximum x, and maximum y.*/
+	protected int[] bounds = new int[32];
+	/**The index of the first entry nested in each region. If nothing was nested, the value is
+	 * the index of the entry itself.*/
+	protected int[] nestedStart = new int[8];
+	/**The number of regions currently registered.
+	 * @see #size()*/
+	protected int size = 0;
+
+	/**
+	 * Removes all registered regions. Called when a new render of the tree begins.
+	 */
+	public void clear() {
+		//let go of the components so that removed ones may be collected
+		Arrays.fill(comps, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of regions registered. Before rendering a scrollable component, the
+	 * rendering panel should save this value to be used as the <code>nestedStart</code> for
+	 * {@link #add(ScrollableComponent, int)}.
+	 * @return {@link #size}
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Registers the active scrolling region of the given component. This should be called after
+	 * the component has been rendered so that its active scroll coordinates are up to date.
+	 * Components without active scroll coordinates are ignored.
+	 * @param comp the scrollable component that was rendered
+	 * @param nestedStart the value of {@link #size()} before the component was rendered. All
+	 * regions added since then are considered nested within this component.
+	 */
+	public void add(ScrollableComponent comp, int nestedStart) {
+		int[][] coords = comp.getActiveScrollCoordinates();
+		if(coords == null || coords[0].length == 0)
+			return;
+
+		if(size == comps.length) {
+			int newLength = size * 2;
+			comps = Arrays.copyOf(comps, newLength);
+			bounds = Arrays.copyOf(bounds, newLength * 4);
+			this.nestedStart = Arrays.copyOf(this.nestedStart, newLength);
+		}
+		int minX = coords[0][0], maxX = minX;
+		for(int i = 1; i < coords[0].length; i++) {
+			if(coords[0][i] < minX)
+				minX = coords[0][i];
+			else if(coords[0][i] > maxX)
+				maxX = coords[0][i];
+		}
+		int minY = coords[1][0], maxY = minY;
+		for(int i = 1; i < coords[1].length; i++) {
+			if(coords[1][i] < minY)
+				minY = coords[1][i];
+			else if(coords[1][i] > maxY)
+				maxY = coords[1][i];
+		}
+		comps[size] = comp;
+		bounds[size*4] = minX;
+		bounds[size*4 + 1] = minY;
+		bounds[size*4 + 2] = maxX;
+		bounds[size*4 + 3] = maxY;
+		this.nestedStart[size] = nestedStart;
+		size++;
+	}
+
+	/**
+	 * Finds the innermost registered component which contains the point and has a height scroll
+	 * bar. If regions overlap at the same level, the one rendered last (and thus drawn on top) is
+	 * preferred. If a region contains the point but neither it nor anything nested in it has a
+	 * height scroll bar, the regions beneath it are searched as well.
+	 * @param x the x-position of the point
+	 * @param y the y-position of the point
+	 * @return the most specific scrollable component found, or null if none contains the point
+	 */
+	public ScrollableComponent find(int x, int y) {
+		return find(x, y, 0, size - 1);
+	}
+	/**
+	 * Searches the siblings ending at the entry <code>last</code> whose level begins at the entry
+	 * <code>lowest</code>, as described in {@link #find(int, int)}.
+	 * @param x the x-position of the point
+	 * @param y the y-position of the point
+	 * @param lowest the first entry in the level being searched
+	 * @param last the last sibling of the level to search
+	 * @return the most specific scrollable component found, or null if none was found
+	 */
+	private ScrollableComponent find(int x, int y, int lowest, int last) {
+		int i = last;
+		while(i >= lowest) {
+			int b = i*4;
+			if(x >= bounds[b] && x < bounds[b+2] && y >= bounds[b+1] && y < bounds[b+3]) {
+				//search the regions nested in this one first
+				ScrollableComponent found = find(x, y, nestedStart[i], i - 1);
+				if(found != null)
+					return found;
+				if(comps[i].getHeightScrollBar() != null)
+					return comps[i];
+			}
+			//skip over everything nested to the previous sibling
+			i = nestedStart[i] - 1;
+		}
+		return null;
+	}
+}
@@ -60,7 +60,7 @@ public class PolygonalButton extends RadioButton {
 	@Deprecated(since="1.15")
 	public PolygonalButton(String id, Panel parent, String [] xs, String [] ys, Color color) {
 		super(parent, null, null, color);
-		this.id = id;
+		setId(id);
 		init(xs, ys);
 	}
 	/**
@@ -86,7 +86,7 @@ public class PolygonalButton extends RadioButton {
 	public PolygonalButton(String id, Panel parent, int x, int y,
 			String [] xs, String [] ys, Color color) {
 		super(parent, x, y, color);
-		this.id = id;
+		setId(id);
 		init(xs, ys);
 	}
 
@@ -11,6 +11,7 @@ import moulton.scalable.containers.MenuManager;
 import moulton.scalable.geometrics.Line;
 import moulton.scalable.texts.Alignment;
 import moulton.scalable.texts.Caption;
+import moulton.scalable.texts.GlyphWidths;
 import moulton.scalable.texts.LineBreak;
 
 /**
@@ -97,6 +98,7 @@ public abstract class CommonPopUp extends PopUp {
 		blanketBackground = new Color(0x33DDDDDD, true);
 		BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
 		FontMetrics fm = img.getGraphics().getFontMetrics(font);
+		GlyphWidths widths = GlyphWidths.of(fm);
 		int fontHeight = fm.getHeight();
 		int doubleHeight = fontHeight * 2;
 		
@@ -125,40 +127,47 @@ public abstract class CommonPopUp extends PopUp {
 		
 		final int DEFAULT_WIDTH = getPopupDefaultWidth(fontHeight);
 		final int MAX_WIDTH = getPopupMaxWidth(fontHeight);
-		int textWidth = fm.stringWidth(text);
+		int textWidth = widths.measure(text);
 		int linesOfText = 1;
 		if(textWidth < DEFAULT_WIDTH) {
 			textWidth = DEFAULT_WIDTH;
 		}else {
-			if(fm.stringWidth(text) > MAX_WIDTH) { //only continue if our text is too long
+			if(textWidth > MAX_WIDTH) { //only continue if our text is too long
 				textWidth = MAX_WIDTH;
-				String rem = text;
-				text = ""; //text will be our final result with \n to separate lines
-				eachLine: while(rem.length() > 0) {
-					String line = "";
-					while(rem.length() > 0 && fm.stringWidth(line) <= MAX_WIDTH) {
-						//pass the first char from rem to line
-						char next = rem.charAt(0); 
-						rem = rem.substring(1);
-						line += next;
+				//the text is broken by index, and the lines are joined with \n to separate them
+				StringBuilder wrapped = new StringBuilder(text.length() + 16);
+				int[] lineBreak = new int[2];
+				int length = text.length();
+				int start = 0; //the start of the remaining text
+				while(start < length) {
+					int end = start;
+					int lineWidth = 0;
+					boolean newLine = false;
+					while(end < length && lineWidth <= MAX_WIDTH) {
+						lineWidth += widths.charWidth(text, end);
+						char next = text.charAt(end++);
 						if(next == '\n') { //"short circuit"
-							text += line;
-							linesOfText++;
-							continue eachLine;
+							newLine = true;
+							break;
 						}
 					}
-					//now line is too long, or we ran out of rem
-					if(rem.length() == 0)
-						text += line; //append what we have
+					if(newLine) {
+						wrapped.append(text, start, end);
+						linesOfText++;
+					}else if(end == length) //now line is too long, or we ran out of text
+						wrapped.append(text, start, end); //append what we have
 					else { //fix the issue that the line is too long
-						LineBreak result = LineBreak.check(false, line, rem);
-						text += result.LINE + '\n';
-						rem = result.REMAINDER;
+						LineBreak.check(false, text, start, end, lineBreak);
+						if(lineBreak[1] == start) //a character wider than the whole line
+							lineBreak[0] = lineBreak[1] = start+1;
+						wrapped.append(text, start, lineBreak[0]).append('\n');
+						end = lineBreak[1];
 						linesOfText++;
 					}
+					start = end;
 				}
-			}else
-				textWidth = fm.stringWidth(text);
+				text = wrapped.toString();
+			}
 		}
 		new Caption(text, base, "0", ""+(doubleHeight*(1 + (title==null?0:1))), font, "width");
 		
@@ -0,0 +1,127 @@
+package moulton.scalable.texts;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Break Strategy class decides where lines of text may be broken when they are too long to fit.
+ * Without a strategy, a {@link LineLayout} breaks lines by the rules of {@link LineBreak}: after a
+ * space, after a hyphen, or before any character. A strategy may be given to
+ * {@link LineLayout#setBreakStrategy(BreakStrategy)} to follow other rules, such as those of
+ * languages which do not separate words with spaces.
+ * <p>
+ * Text is divided into paragraphs by new line characters, which always end a line. A strategy
+ * segments each paragraph into the places a line may begin ({@link Breaks#lines}) and the places
+ * where each cluster of characters which is shown as one begins ({@link Breaks#clusters}). The
+ * layout only fits lines to the width. Since segmenting is much slower than fitting, the breaks of
+ * each paragraph are cached by the content of the paragraph. A paragraph laid out again at a new
+ * width, or shown by another component with the same strategy, is not segmented again. The
+ * paragraphs used least recently are forgotten once more than {@link #maxCachedChars} characters
+ * are cached.
+ * @author Matthew Moulton
+ * @see UnicodeBreakStrategy
+ */
+public abstract class BreakStrategy {
+	/**The default number of characters whose breaks are cached by each strategy.*/
+	public static final int DEFAULT_CACHED_CHARS = 1 << 20;
+	/**The breaks found for each paragraph, in order of least to most recent use.*/
+	private final Map<String, Breaks> cache = new LinkedHashMap<>(64, .75f, true);
+	/**The number of characters in all the paragraphs of {@link #cache}.*/
+	private long cachedChars = 0;
+	/**The greatest number of characters whose breaks are cached at once. If 0, nothing is cached.*/
+	protected final long maxCachedChars;
+
+	/**
+	 * @param maxCachedChars the greatest number of characters whose breaks are cached at once, as
+	 * {@link #maxCachedChars}
+	 */
+	protected BreakStrategy(long maxCachedChars) {
+		this.maxCachedChars = Math.max(0, maxCachedChars);
+	}
+
+	/**
+	 * Returns the breaks of the paragraph of the text from start to end. The breaks are segmented by
+	 * {@link #segment(String)} unless an equal paragraph is cached.
+	 * @param text the text holding the paragraph
+	 * @param start the index where the paragraph begins (inclusive)
+	 * @param end the index where the paragraph ends (exclusive). There are no new lines between
+	 * start and end.
+	 * @return the breaks, with indices relative to start
+	 */
+	public Breaks getBreaks(CharSequence text, int start, int end) {
+		String paragraph = text.subSequence(start, end).toString();
+		Breaks breaks;
+		synchronized(cache) {
+			breaks = cache.get(paragraph);
+		}
+		if(breaks != null)
+			return breaks;
+		breaks = segment(paragraph);
+		if(paragraph.length() <= maxCachedChars) {
+			synchronized(cache) {
+				if(cache.put(paragraph, breaks) == null)
+					cachedChars += paragraph.length();
+				Iterator<String> eldest = cache.keySet().iterator();
+				while(cachedChars > maxCachedChars) {
+					cachedChars -= eldest.next().length();
+					eldest.remove();
+				}
+			}
+		}
+		return breaks;
+	}
+
+	/**
+	 * Finds the breaks of the paragraph. This may be called from multiple threads at once.
+	 * @param paragraph the text to segment, which has no new line characters
+	 * @return the breaks of the paragraph
+	 */
+	protected abstract Breaks segment(String paragraph);
+
+	/**
+	 * Forgets the breaks of every paragraph cached.
+	 */
+	public void clearCache() {
+		synchronized(cache) {
+			cache.clear();
+			cachedChars = 0;
+		}
+	}
+
+	/**
+	 * The places in a paragraph where lines may begin and where clusters of characters begin.
+	 */
+	public static class Breaks {
+		/**The indices in the paragraph where a line may begin, in increasing order. Each is more
+		 * than 0.*/
+		protected final int[] lines;
+		/**The indices in the paragraph where each cluster of characters shown as one begins, in
+		 * increasing order, such that no line is broken inside a cluster. If null, each character is
+		 * its own cluster.*/
+		protected final int[] clusters;
+
+		/**
+		 * @param lines the indices where a line may begin, as {@link #lines}
+		 * @param clusters the indices where each cluster begins, as {@link #clusters}, or null if
+		 * each character is its own cluster
+		 */
+		public Breaks(int[] lines, int[] clusters) {
+			this.lines = lines;
+			this.clusters = clusters;
+		}
+
+		/**
+		 * Finds the first value of the increasing array which is greater than the index.
+		 * @param indices the array to search
+		 * @param index the index to search for
+		 * @return the position in indices of the first value greater than index, or the length of
+		 * indices if there is none
+		 */
+		protected static int after(int[] indices, int index) {
+			int found = Arrays.binarySearch(indices, index);
+			return (found >= 0)? found + 1: -found - 1;
+		}
+	}
+}
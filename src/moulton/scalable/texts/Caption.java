@@ -4,8 +4,10 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.util.ArrayList;
 
 import moulton.scalable.containers.Panel;
+import moulton.scalable.utils.FontCache;
 import moulton.scalable.utils.MenuComponent;
 import moulton.scalable.utils.MenuSolver.Expression;
 
@@ -32,6 +34,29 @@ public class Caption extends MenuComponent{
 	 * @see #getYCentered()
 	 * @see #setYCentered(boolean)*/
 	protected boolean yCentered = true;
+	/**Keeps the shaped glyphs of each line between renders, or null if the lines are shaped each
+	 * time they are drawn. Defaults to null.
+	 * @see #setGlyphCaching(boolean)*/
+	protected GlyphRuns glyphRuns = null;
+	/**Whether lines too wide for the caption are cut to fit. This only applies when the caption has a
+	 * width: when it is centered within a width, or when it is in a grid. Defaults to false.
+	 * @see #setTruncate(boolean)*/
+	protected boolean truncate = false;
+	/**Whether lines which are cut end with an ellipsis. Defaults to false.
+	 * @see #setEllipsis(boolean)*/
+	protected boolean ellipsis = false;
+	
+	//cached
+	/**The text that {@link #lines} were split from.*/
+	private String splitText = null;
+	/**The lines of {@link #splitText}, as split by new lines.
+	 * @see #getLines()*/
+	private String[] lines;
+	/**The widths that {@link #lineWidths} were measured with, or null if they were not measured.*/
+	private GlyphWidths measuredWidths = null;
+	/**The width in pixels of each of {@link #lines}.
+	 * @see #getLineWidth(int, GlyphWidths)*/
+	private int[] lineWidths;
 	
 	/**
 	 * @param text the text to display in the menu
@@ -79,17 +104,16 @@ public class Caption extends MenuComponent{
 
 	@Override
 	public void render(Graphics g, int xx, int yy, int ww, int hh) {
-		//count how many enters there
-		String [] texts = text.split("\n");
+		String [] texts = getLines();
 		
 		//draw the text here
 		if(textResize())
-			g.setFont(new Font(font.getFontName(), font.getStyle(),
-					getTextVertResize(font.getSize())));
+			g.setFont(FontCache.derive(font, getTextVertResize(font.getSize())));
 		else
 			g.setFont(font);
 		g.setColor(textColor);
 		FontMetrics fm = g.getFontMetrics();
+		GlyphWidths widths = GlyphWidths.of(fm);
 		int fontWidth = 0;
 		int fontHeight = fm.getHeight();
 		
@@ -108,8 +132,12 @@ public class Caption extends MenuComponent{
 		
 		switch(alignment){
 		case LEFT_ALIGNMENT:
-			for(int i=0; i<texts.length; i++)
-				g.drawString(texts[i], x, y+(i*fontHeight));
+			for(int i=0; i<texts.length; i++) {
+				String line = texts[i];
+				if(truncate && getGridLocation() != null)
+					line = TruncatedText.of(line, widths, ww, ellipsis).getText();
+				drawLine(g, i, line, x, y+(i*fontHeight));
+			}
 			break;
 		case CENTER_ALIGNMENT:
 			if(this.centerWidth != null) {
@@ -124,9 +152,16 @@ public class Caption extends MenuComponent{
 				//continue on to draw the string based on redefined values
 			}else if (getGridLocation() != null)
 				x += ww/2; // use the width provided earlier
+			boolean bounded = centerWidth != null || getGridLocation() != null;
 			for(int i=0; i<texts.length; i++){
-				fontWidth = fm.stringWidth(texts[i]);
-				g.drawString(texts[i], x-fontWidth/2, y+(i*fontHeight));
+				String line = texts[i];
+				if(truncate && bounded) {
+					TruncatedText shown = TruncatedText.of(line, widths, ww, ellipsis);
+					line = shown.getText();
+					fontWidth = shown.getWidth();
+				}else
+					fontWidth = getLineWidth(i, widths);
+				drawLine(g, i, line, x-fontWidth/2, y+(i*fontHeight));
 			}
 			break;
 		case RIGHT_ALIGNMENT:
@@ -135,13 +170,79 @@ public class Caption extends MenuComponent{
 				x += ww;
 			
 			for(int i=0; i<texts.length; i++){
-				fontWidth = fm.stringWidth(texts[i]);
-				g.drawString(texts[i], x-fontWidth, y+(i*fontHeight));
+				String line = texts[i];
+				if(truncate && getGridLocation() != null) {
+					TruncatedText shown = TruncatedText.of(line, widths, ww, ellipsis);
+					line = shown.getText();
+					fontWidth = shown.getWidth();
+				}else
+					fontWidth = getLineWidth(i, widths);
+				drawLine(g, i, line, x-fontWidth, y+(i*fontHeight));
 			}
 			break;
 		}
 	}
 	
+	/**
+	 * Returns the lines of {@link #text}, split on new lines as <code>text.split("\n")</code> would.
+	 * The lines are kept until the text changes.
+	 * @return the lines of the text
+	 */
+	protected String[] getLines() {
+		if(text != splitText) {
+			ArrayList<String> split = new ArrayList<>();
+			int start = 0, end;
+			while((end = text.indexOf('\n', start)) != -1) {
+				split.add(text.substring(start, end));
+				start = end + 1;
+			}
+			if(start == 0) //no new lines
+				split.add(text);
+			else {
+				split.add(text.substring(start));
+				//trailing empty lines are dropped, as by String.split
+				while(!split.isEmpty() && split.get(split.size()-1).isEmpty())
+					split.remove(split.size()-1);
+			}
+			lines = split.toArray(new String[split.size()]);
+			splitText = text;
+			measuredWidths = null;
+		}
+		return lines;
+	}
+	/**
+	 * Returns the width of a line of {@link #getLines()}. The widths of the lines are kept until the
+	 * text or the widths measured with change, as happens when the font is resized.
+	 * @param line the index of the line
+	 * @param widths the widths of the font the line is drawn in
+	 * @return the width of the line in pixels
+	 */
+	protected int getLineWidth(int line, GlyphWidths widths) {
+		if(widths != measuredWidths) {
+			if(lineWidths == null || lineWidths.length < lines.length)
+				lineWidths = new int[lines.length];
+			for(int i=0; i<lines.length; i++)
+				lineWidths[i] = widths.measure(lines[i]);
+			measuredWidths = widths;
+		}
+		return lineWidths[line];
+	}
+	
+	/**
+	 * Draws a line of the caption, from {@link #glyphRuns} if glyphs are cached.
+	 * @param g the graphics to draw on
+	 * @param line the index of the line in the caption
+	 * @param text the text of the line
+	 * @param x the x coordinate to draw the line at
+	 * @param y the y coordinate of the baseline of the line
+	 */
+	protected void drawLine(Graphics g, int line, String text, int x, int y) {
+		if(glyphRuns != null)
+			glyphRuns.drawString(g, line, text, x, y);
+		else
+			g.drawString(text, x, y);
+	}
+	
 	/**
 	 * Sets the text that will be displayed when rendered
 	 * @param text the text saved as {@link #text}
@@ -201,4 +302,59 @@ public class Caption extends MenuComponent{
 		this.yCentered = yCentered;
 		return this;
 	}
+	
+	/**
+	 * Sets whether the shaped glyphs of the text are kept between renders. This makes drawing faster
+	 * for captions whose text seldom changes, at the cost of keeping the glyphs in memory.
+	 * @param cache whether to keep the glyphs in {@link #glyphRuns}
+	 * @return this
+	 */
+	public Caption setGlyphCaching(boolean cache) {
+		glyphRuns = cache? new GlyphRuns(): null;
+		return this;
+	}
+	/**
+	 * Returns whether the shaped glyphs of the text are kept between renders.
+	 * @return whether {@link #glyphRuns} is set
+	 */
+	public boolean getGlyphCaching() {
+		return glyphRuns != null;
+	}
+	
+	/**
+	 * Sets whether lines too wide for the caption are cut to fit, as the text of a button is. Lines
+	 * are only cut when the caption has a width: when it is centered within a width, or when it is
+	 * in a grid.
+	 * @param truncate the value to replace {@link #truncate}
+	 * @return this
+	 * @see TruncatedText
+	 */
+	public Caption setTruncate(boolean truncate) {
+		this.truncate = truncate;
+		return this;
+	}
+	/**
+	 * Returns whether lines too wide for the caption are cut to fit.
+	 * @return {@link #truncate}
+	 */
+	public boolean getTruncate() {
+		return truncate;
+	}
+	/**
+	 * Sets whether lines which are cut to fit end with an ellipsis.
+	 * @param ellipsis the value to replace {@link #ellipsis}
+	 * @return this
+	 * @see #setTruncate(boolean)
+	 */
+	public Caption setEllipsis(boolean ellipsis) {
+		this.ellipsis = ellipsis;
+		return this;
+	}
+	/**
+	 * Returns whether lines which are cut to fit end with an ellipsis.
+	 * @return {@link #ellipsis}
+	 */
+	public boolean getEllipsis() {
+		return ellipsis;
+	}
 }
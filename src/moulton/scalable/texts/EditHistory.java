@@ -0,0 +1,406 @@
+package moulton.scalable.texts;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+
+/**
+ * The Edit History class keeps the edits made to a {@link TextBuffer} so that they may be undone and
+ * redone. Rather than saving the text before each edit, only what changed is saved: the index of the
+ * edit, the characters removed, and the characters inserted in their place. Therefore, an edit costs
+ * memory in proportion to the characters it changed, and undoing even a large paste only needs to
+ * remove the pasted characters from the buffer.
+ * <p>
+ * Edits are grouped into actions, each of which is undone as one step. The component editing the
+ * buffer marks each action with {@link #beginAction()} and {@link #endAction()}, and every edit made
+ * between them joins the same step. Actions begun with {@link #beginTyping()} also join the step of
+ * the typing before them when the two are next to each other in the text, so a run of keystrokes is
+ * undone at once. Edits made outside of any action are each their own step.
+ * <p>
+ * The memory kept is limited to {@link #maxBytes}. When more is needed, the oldest steps are
+ * forgotten until the rest fit. An edit too large to fit even alone is not copied at all. Instead,
+ * every step is forgotten, since none made before the edit could be undone without it.
+ * @author Matthew Moulton
+ * @see TextBuffer#setHistory(EditHistory)
+ */
+public class EditHistory {
+	/**The limit of {@link #maxBytes} used by a new {@link TextBox}.*/
+	public static final long DEFAULT_MAX_BYTES = 8L << 20;
+	/**The approximate memory of a saved edit besides its characters.*/
+	private static final int EDIT_BYTES = 64;
+	/**The modes of an action.
+	 * @see #mode*/
+	private static final int NEW = 0, TYPING = 1, EXTEND = 2;
+
+	/**The steps which may be undone, with the newest last.
+	 * @see #undo(TextBuffer)*/
+	protected Deque<Step> undos = new ArrayDeque<>();
+	/**The steps which have been undone and may be redone, with the most recently undone last.
+	 * @see #redo(TextBuffer)*/
+	protected Deque<Step> redos = new ArrayDeque<>();
+	/**The approximate memory of all of the steps kept.
+	 * @see #getBytes()*/
+	protected long bytes = 0;
+	/**The most memory that the steps kept may take, in bytes. If 0, no edits are kept.
+	 * @see #setMaxBytes(long)*/
+	protected long maxBytes;
+	/**How many actions are begun but not yet ended. Actions may be nested, in which case the outermost
+	 * action decides how its edits are grouped.*/
+	private int depth = 0;
+	/**How the edits of the current action are grouped. One of NEW, TYPING, or EXTEND.*/
+	private int mode = NEW;
+	/**The step the current action has joined or started, or null before its first edit.*/
+	private Step current = null;
+	/**Whether the edits of the current action are not kept, since part of the action was forgotten.*/
+	private boolean discarding = false;
+	/**Whether the newest step was typed, so that the next typing may join it.*/
+	private boolean typed = false;
+	/**Whether edits are being undone or redone, in which case they are not kept as new steps.*/
+	private boolean applying = false;
+
+	/**
+	 * @param maxBytes the most memory the steps kept may take, as {@link #maxBytes}
+	 */
+	public EditHistory(long maxBytes) {
+		this.maxBytes = Math.max(0, maxBytes);
+	}
+
+	/**
+	 * Begins an action whose edits are undone as one step.
+	 * @see #endAction()
+	 */
+	public void beginAction() {
+		begin(NEW);
+	}
+	/**
+	 * Begins an action of typing. Its edits join the newest step if that step was typed too and the
+	 * edits are next to it in the text. Otherwise, a new step is started.
+	 * @see #endAction()
+	 * @see #breakTyping()
+	 */
+	public void beginTyping() {
+		begin(TYPING);
+	}
+	/**
+	 * Begins an action which finishes the newest step, such as removing characters which the last
+	 * action left past a limit. Its edits join the newest step wherever they are in the text.
+	 * @see #endAction()
+	 */
+	public void extendAction() {
+		begin(EXTEND);
+	}
+	private void begin(int mode) {
+		if(depth++ == 0) {
+			this.mode = mode;
+			current = null;
+			discarding = false;
+		}
+	}
+	/**
+	 * Ends the action begun most recently.
+	 */
+	public void endAction() {
+		if(depth == 0)
+			return;
+		if(--depth == 0) {
+			if(current != null && mode != EXTEND)
+				typed = mode == TYPING;
+			current = null;
+			discarding = false;
+		}
+	}
+	/**
+	 * Stops the next typing from joining the newest step, such as when the user moves the blinker.
+	 */
+	public void breakTyping() {
+		typed = false;
+	}
+
+	/**
+	 * Saves that the characters of the text from start to end are about to be replaced by the
+	 * characters of inserted from insertedStart to insertedEnd. Called by the {@link TextBuffer}
+	 * before each edit.
+	 * @param text the text which is edited
+	 * @param start the index of the first character replaced (inclusive)
+	 * @param end the index after the last character replaced (exclusive)
+	 * @param inserted the text holding the replacement
+	 * @param insertedStart the index of the first character of the replacement (inclusive)
+	 * @param insertedEnd the index after the last character of the replacement (exclusive)
+	 */
+	public void record(TextBuffer text, int start, int end, CharSequence inserted, int insertedStart, int insertedEnd) {
+		if(applying || discarding || maxBytes == 0)
+			return;
+		clearRedos();
+		if(EDIT_BYTES + 2L * ((end - start) + (insertedEnd - insertedStart)) > maxBytes) {
+			clear();
+			discarding = depth > 0;
+			return;
+		}
+		Step step = current;
+		if(step == null && depth > 0 && !undos.isEmpty()) {
+			Step newest = undos.peekLast();
+			if(mode == EXTEND || (mode == TYPING && typed && newest.last().touches(start, end)))
+				step = newest;
+		}
+		if(step == null) {
+			step = new Step();
+			undos.addLast(step);
+		}
+		bytes -= step.bytes;
+		step.add(text, start, end, inserted, insertedStart, insertedEnd);
+		bytes += step.bytes;
+		if(depth > 0)
+			current = step;
+		else
+			typed = false;
+		trim();
+	}
+
+	/**
+	 * Undoes the newest step by applying the inverse of each of its edits to the text, newest first.
+	 * @param text the text to undo the step in. This must be the text the step was recorded from.
+	 * @return the change made to the text as the index of the first character changed, the number of
+	 * characters removed, and the number inserted in their place. Null if there was nothing to undo.
+	 */
+	public int[] undo(TextBuffer text) {
+		if(undos.isEmpty())
+			return null;
+		Step step = undos.pollLast();
+		redos.addLast(step);
+		typed = false;
+		Change change = new Change();
+		applying = true;
+		try {
+			for(int i=step.edits.size()-1; i>=0; i--) {
+				Edit edit = step.edits.get(i);
+				int end = edit.start + edit.inserted.length();
+				text.replace(edit.start, end, edit.removed);
+				change.add(edit.start, end, edit.removed.length());
+			}
+		}finally {
+			applying = false;
+		}
+		return change.toArray();
+	}
+	/**
+	 * Redoes the step undone most recently by applying each of its edits to the text again, oldest
+	 * first.
+	 * @param text the text to redo the step in. This must be the text the step was undone in.
+	 * @return the change made to the text, as given by {@link #undo(TextBuffer)}. Null if there was
+	 * nothing to redo.
+	 */
+	public int[] redo(TextBuffer text) {
+		if(redos.isEmpty())
+			return null;
+		Step step = redos.pollLast();
+		undos.addLast(step);
+		typed = false;
+		Change change = new Change();
+		applying = true;
+		try {
+			for(Edit edit: step.edits) {
+				int end = edit.start + edit.removed.length();
+				text.replace(edit.start, end, edit.inserted);
+				change.add(edit.start, end, edit.inserted.length());
+			}
+		}finally {
+			applying = false;
+		}
+		return change.toArray();
+	}
+
+	/**
+	 * @return whether there is a step to undo
+	 */
+	public boolean canUndo() {
+		return !undos.isEmpty();
+	}
+	/**
+	 * @return whether there is a step to redo
+	 */
+	public boolean canRedo() {
+		return !redos.isEmpty();
+	}
+
+	/**
+	 * Forgets all of the steps.
+	 */
+	public void clear() {
+		undos.clear();
+		redos.clear();
+		bytes = 0;
+		current = null;
+		typed = false;
+	}
+
+	/**
+	 * Sets the most memory that the steps kept may take. If more is taken already, the oldest steps
+	 * are forgotten until the rest fit.
+	 * @param maxBytes the new value of {@link #maxBytes}. If 0, no edits are kept.
+	 */
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = Math.max(0, maxBytes);
+		trim();
+	}
+	/**
+	 * @return the most memory that the steps kept may take, as {@link #maxBytes}
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+	/**
+	 * @return the approximate memory of all the steps kept, as {@link #bytes}
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Forgets all the steps which could be redone, since they no longer apply after a new edit.
+	 */
+	private void clearRedos() {
+		while(!redos.isEmpty())
+			bytes -= redos.pollLast().bytes;
+	}
+	/**
+	 * Forgets the steps which may be redone, then the oldest steps, until the rest fit within
+	 * {@link #maxBytes}. If the step of the current action is forgotten, the rest of the action is
+	 * not kept either, since undoing only part of an action would leave the text in a state it was
+	 * never in.
+	 */
+	private void trim() {
+		if(bytes <= maxBytes)
+			return;
+		clearRedos();
+		while(bytes > maxBytes && !undos.isEmpty()) {
+			Step oldest = undos.pollFirst();
+			bytes -= oldest.bytes;
+			if(oldest == current) {
+				current = null;
+				discarding = depth > 0;
+			}
+		}
+		if(undos.isEmpty())
+			typed = false;
+	}
+
+	/**
+	 * A step of the history, which is undone and redone at once. It holds the edits of one action in
+	 * the order they were made.
+	 */
+	protected static class Step {
+		/**The edits of the step, oldest first.*/
+		protected final ArrayList<Edit> edits = new ArrayList<>(1);
+		/**The approximate memory of the edits.*/
+		protected long bytes = 0;
+
+		/**
+		 * @return the newest edit of the step
+		 */
+		protected Edit last() {
+			return edits.get(edits.size() - 1);
+		}
+
+		/**
+		 * Adds the edit to the step. If the edit touches the newest edit of the step, the two are
+		 * merged into one.
+		 */
+		private void add(TextBuffer text, int start, int end, CharSequence inserted, int insertedStart, int insertedEnd) {
+			Edit last = edits.isEmpty()? null: last();
+			if(last != null && last.touches(start, end)) {
+				bytes -= last.bytes();
+				last.merge(text, start, end, inserted, insertedStart, insertedEnd);
+			}else {
+				last = new Edit(text, start, end, inserted, insertedStart, insertedEnd);
+				edits.add(last);
+			}
+			bytes += last.bytes();
+		}
+	}
+
+	/**
+	 * A single replacement of characters in the text.
+	 */
+	protected static class Edit {
+		/**The index in the text where the edit was made.*/
+		protected int start;
+		/**The characters removed from the text at {@link #start}.*/
+		protected final StringBuilder removed;
+		/**The characters inserted into the text at {@link #start}.*/
+		protected final StringBuilder inserted;
+
+		private Edit(TextBuffer text, int start, int end, CharSequence inserted, int insertedStart, int insertedEnd) {
+			this.start = start;
+			this.removed = new StringBuilder(end - start);
+			text.getChars(start, end, removed, 0);
+			this.inserted = new StringBuilder(insertedEnd - insertedStart).append(inserted, insertedStart, insertedEnd);
+		}
+
+		/**
+		 * Returns whether a later edit replacing the characters of the text from start to end touches
+		 * or overlaps the characters inserted by this edit, in which case the two may be merged.
+		 */
+		protected boolean touches(int start, int end) {
+			return start <= this.start + inserted.length() && end >= this.start;
+		}
+
+		/**
+		 * Merges a later edit which {@link #touches(int, int)} this one, so that this edit makes both
+		 * changes at once. The characters the later edit removed from outside of this edit's insertion
+		 * were in the text before this edit, so they join {@link #removed}. The rest of the later edit
+		 * changes this edit's insertion.
+		 */
+		private void merge(TextBuffer text, int start, int end, CharSequence inserted, int insertedStart, int insertedEnd) {
+			int insertedAt = this.start + this.inserted.length();
+			if(end > insertedAt)
+				text.getChars(insertedAt, end, removed, removed.length());
+			if(start < this.start)
+				text.getChars(start, this.start, removed, 0);
+			int from = Math.max(start, this.start) - this.start;
+			int to = Math.min(end, insertedAt) - this.start;
+			this.inserted.delete(from, to).insert(from, inserted, insertedStart, insertedEnd);
+			if(start < this.start)
+				this.start = start;
+		}
+
+		private long bytes() {
+			return EDIT_BYTES + 2L * (removed.length() + inserted.length());
+		}
+	}
+
+	/**
+	 * The span of the text changed by undoing or redoing a step, in the form given to
+	 * {@link TextBox#textChanged(int, int, int)}.
+	 */
+	private static class Change {
+		private int start = -1;
+		/**The end of the span in the text before the step was applied.*/
+		private int oldEnd;
+		/**The end of the span in the text as it is now.*/
+		private int end;
+
+		/**
+		 * Adds an edit which replaced the characters of the text from start to end with the given
+		 * number of characters.
+		 */
+		private void add(int start, int end, int inserted) {
+			if(this.start == -1) {
+				this.start = start;
+				oldEnd = end;
+				this.end = end;
+			}else {
+				//characters past the span are the same as they were before the step
+				if(end > this.end) {
+					oldEnd += end - this.end;
+					this.end = end;
+				}
+				this.start = Math.min(this.start, start);
+			}
+			this.end += inserted - (end - start);
+		}
+
+		private int[] toArray() {
+			return new int[] {start, oldEnd - start, end - start};
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package moulton.scalable.texts;
+
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.text.Bidi;
+import java.util.Arrays;
+
+/**
+ * The Glyph Runs class keeps the shaped glyphs of the lines a component draws, so that text which
+ * does not change between frames is only shaped once. Drawing a string with
+ * {@link Graphics#drawString(String, int, int)} maps each character to its glyph again every time.
+ * Instead, each line is saved as a {@link GlyphVector} and drawn with
+ * {@link Graphics2D#drawGlyphVector(GlyphVector, float, float)}.
+ * <p>
+ * A component holds one instance, and gives each line it draws a run number, such as the index of
+ * the line. The glyphs of a run are kept until the run is drawn with other text, or with another
+ * font or render context, as happens when the text or the font size changes. Text which needs
+ * bidirectional layout, fonts with layout attributes such as kerning, and graphics which are not
+ * {@link Graphics2D} are drawn with {@link Graphics#drawString(String, int, int)} as before.
+ * @author Matthew Moulton
+ */
+public class GlyphRuns {
+	/**The text of each run, or null if the run has not been drawn.*/
+	protected String[] texts = new String[1];
+	/**The glyphs shaped for each run in {@link #texts}.*/
+	protected GlyphVector[] glyphs = new GlyphVector[1];
+
+	/**
+	 * Draws the text with its baseline beginning at (x, y), as
+	 * {@link Graphics#drawString(String, int, int)} would, in the font of the graphics.
+	 * @param g the graphics to draw on
+	 * @param run the number of the run, such as the index of the line
+	 * @param text the text to draw
+	 * @param x the x coordinate to draw the text at
+	 * @param y the y coordinate of the baseline of the text
+	 */
+	public void drawString(Graphics g, int run, String text, int x, int y) {
+		if(!(g instanceof Graphics2D)) {
+			g.drawString(text, x, y);
+			return;
+		}
+		Graphics2D g2 = (Graphics2D)g;
+		Font font = g2.getFont();
+		FontRenderContext context = g2.getFontRenderContext();
+		if(run >= texts.length) {
+			int newLength = Math.max(run + 1, texts.length * 2);
+			texts = Arrays.copyOf(texts, newLength);
+			glyphs = Arrays.copyOf(glyphs, newLength);
+		}
+
+		GlyphVector glyph = glyphs[run];
+		if(glyph == null || !text.equals(texts[run]) || !font.equals(glyph.getFont())
+				|| !context.equals(glyph.getFontRenderContext())) {
+			glyph = shape(font, context, text);
+			if(glyph == null) { //the text cannot be kept as one run of glyphs
+				g.drawString(text, x, y);
+				return;
+			}
+			texts[run] = text;
+			glyphs[run] = glyph;
+		}
+		g2.drawGlyphVector(glyph, x, y);
+	}
+
+	/**
+	 * Shapes the text into glyphs in the font.
+	 * @param font the font to shape with
+	 * @param context the render context to shape in
+	 * @param text the text to shape
+	 * @return the glyphs, or null if the text must be drawn by {@link Graphics#drawString(String, int, int)}
+	 */
+	protected GlyphVector shape(Font font, FontRenderContext context, String text) {
+		char[] chars = text.toCharArray();
+		if(font.hasLayoutAttributes() || Bidi.requiresBidi(chars, 0, chars.length))
+			return null;
+		if(Font.textRequiresLayout(chars, 0, chars.length))
+			return font.layoutGlyphVector(context, chars, 0, chars.length, Font.LAYOUT_LEFT_TO_RIGHT);
+		return font.createGlyphVector(context, chars);
+	}
+
+	/**
+	 * Forgets the glyphs of every run.
+	 */
+	public void clear() {
+		Arrays.fill(texts, null);
+		Arrays.fill(glyphs, null);
+	}
+}
@@ -0,0 +1,222 @@
+package moulton.scalable.texts;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.font.FontRenderContext;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Glyph Widths class remembers the advance width of each character for one font as rendered in
+ * one {@link FontRenderContext}. Asking {@link FontMetrics} for the width of a string measures every
+ * glyph in it again, so components that measure a growing line one character at a time spend most
+ * of their time finding widths they have already found. Instead, each width is found once and saved
+ * in a table, and the width of any range of text is the sum of the saved widths.
+ * <p>
+ * Widths are shared between all the components which render with the same font and context through
+ * {@link #of(FontMetrics)}. The widths of Latin-1 characters are found when the table is created.
+ * The rest of the Basic Multilingual Plane is split into pages of 256 characters, and each page is
+ * only measured when a character in it is first needed. Once measured, a page is never changed.
+ * Characters outside of the plane are written as surrogate pairs, which are drawn as one glyph. The
+ * width of each is saved in a map when first needed, and counted for the high surrogate of the pair
+ * by {@link #charWidth(CharSequence, int)}, while the low surrogate counts for nothing.
+ * <p>
+ * Since each character is measured alone, the width of a range of text is the same as
+ * {@link FontMetrics#stringWidth(String)} except where the font applies kerning or ligatures, which
+ * the text components of this library have never relied upon.
+ * @author Matthew Moulton
+ */
+public class GlyphWidths {
+	/**The greatest number of fonts whose widths are kept at once. When another font is measured, the
+	 * font which was used least recently is forgotten.*/
+	public static final int MAX_FONTS = 32;
+	/**The widths of every font and render context measured recently, in order of least to most
+	 * recent use.*/
+	private static final Map<Key, GlyphWidths> CACHE = new LinkedHashMap<>(MAX_FONTS, .75f, true);
+	/**The widths returned by the last call to {@link #of(FontMetrics)}. Most calls ask for the same
+	 * font as the one before, so this is checked before {@link #CACHE}.*/
+	private static volatile GlyphWidths last = null;
+
+	/**The font measured.*/
+	protected final Font font;
+	/**The context the font is rendered in.*/
+	protected final FontRenderContext renderContext;
+	/**The metrics used to find the width of characters not yet measured.*/
+	protected final FontMetrics metrics;
+	/**The widths of the characters, in pages of 256 characters indexed by the high byte of the
+	 * character. A page is null until a character in it is measured.*/
+	protected final int[][] pages = new int[256][];
+	/**The widths of the characters outside of the Basic Multilingual Plane measured, by code point.*/
+	protected final Map<Integer, Integer> supplementary = new ConcurrentHashMap<>();
+
+	/**
+	 * @param metrics the metrics to measure characters with. The font and render context of the
+	 * metrics are the font and context of these widths.
+	 */
+	protected GlyphWidths(FontMetrics metrics) {
+		this.metrics = metrics;
+		this.font = metrics.getFont();
+		this.renderContext = metrics.getFontRenderContext();
+		pages[0] = measurePage(0);
+	}
+
+	/**
+	 * Returns the widths of the characters in the font and render context of the metrics. The same
+	 * widths are returned for every metrics with an equal font and context, so the characters only
+	 * need to be measured once no matter how many components use that font.
+	 * @param metrics the metrics of the font to measure
+	 * @return the shared widths of the font
+	 */
+	public static GlyphWidths of(FontMetrics metrics) {
+		Font font = metrics.getFont();
+		FontRenderContext context = metrics.getFontRenderContext();
+		GlyphWidths widths = last;
+		if(widths != null && widths.font.equals(font) && widths.renderContext.equals(context))
+			return widths;
+		Key key = new Key(font, context);
+		synchronized(CACHE) {
+			widths = CACHE.get(key);
+			if(widths == null) {
+				widths = new GlyphWidths(metrics);
+				CACHE.put(key, widths);
+				if(CACHE.size() > MAX_FONTS) {
+					Iterator<GlyphWidths> eldest = CACHE.values().iterator();
+					eldest.next();
+					eldest.remove();
+				}
+			}
+		}
+		last = widths;
+		return widths;
+	}
+
+	/**
+	 * Returns the advance width of the character.
+	 * @param c the character to measure
+	 * @return the width of c, as given by {@link FontMetrics#charWidth(char)}
+	 */
+	public int charWidth(char c) {
+		int[] page = pages[c >>> 8];
+		if(page == null) {
+			page = measurePage(c >>> 8);
+			pages[c >>> 8] = page;
+		}
+		return page[c & 0xFF];
+	}
+
+	/**
+	 * Returns the advance width of the character at the index of the text. A surrogate pair is one
+	 * glyph, so its width is given for the high surrogate and the low surrogate is given a width of
+	 * 0. Therefore, the widths of the characters of a range of text add up to
+	 * {@link #measure(CharSequence, int, int)}, and a line broken by these widths is never broken
+	 * inside a pair. A surrogate which is not part of a pair is measured alone.
+	 * @param text the text holding the character
+	 * @param index the index of the character to measure
+	 * @return the width of the character at the index
+	 */
+	public int charWidth(CharSequence text, int index) {
+		char c = text.charAt(index);
+		if(!Character.isSurrogate(c))
+			return charWidth(c);
+		if(Character.isHighSurrogate(c)) {
+			if(index+1 < text.length() && Character.isLowSurrogate(text.charAt(index+1)))
+				return codePointWidth(Character.toCodePoint(c, text.charAt(index+1)));
+		}else if(index > 0 && Character.isHighSurrogate(text.charAt(index-1)))
+			return 0;
+		return charWidth(c);
+	}
+	/**
+	 * Returns the advance width of the code point outside of the Basic Multilingual Plane.
+	 * @param codePoint the code point to measure
+	 * @return the width saved in {@link #supplementary}, as given by {@link FontMetrics#charWidth(int)}
+	 */
+	private int codePointWidth(int codePoint) {
+		Integer width = supplementary.get(codePoint);
+		if(width == null) {
+			width = metrics.charWidth(codePoint);
+			supplementary.put(codePoint, width);
+		}
+		return width;
+	}
+
+	/**
+	 * Measures all the characters of a page of {@link #pages}.
+	 * @param page the high byte of the characters to measure
+	 * @return the widths of the 256 characters in the page
+	 */
+	private int[] measurePage(int page) {
+		int[] widths = new int[256];
+		for(int i=0; i<widths.length; i++)
+			widths[i] = metrics.charWidth((char)(page << 8 | i));
+		return widths;
+	}
+
+	/**
+	 * Returns the width of the whole text.
+	 * @param text the text to measure
+	 * @return the sum of the widths of each character in text, counting each surrogate pair as one
+	 * glyph
+	 * @see #measure(CharSequence, int, int)
+	 */
+	public int measure(CharSequence text) {
+		return measure(text, 0, text.length());
+	}
+	/**
+	 * Returns the width of the characters of the text from start to end.
+	 * @param text the text to measure
+	 * @param start the index of the first character to measure (inclusive)
+	 * @param end the index after the last character to measure (exclusive)
+	 * @return the sum of the widths of each character in the range, as given by
+	 * {@link #charWidth(CharSequence, int)}. For {@link MaskedText}, this is found from the width of
+	 * one mask.
+	 */
+	public int measure(CharSequence text, int start, int end) {
+		if(text instanceof MaskedText) //every character is the mask
+			return (end - start) * charWidth(((MaskedText)text).getMask());
+		int width = 0;
+		for(int i=start; i<end; i++) {
+			char c = text.charAt(i);
+			if(!Character.isSurrogate(c))
+				width += charWidth(c);
+			else
+				width += charWidth(text, i);
+		}
+		return width;
+	}
+
+	/**
+	 * @return the font these widths were measured in
+	 */
+	public Font getFont() {
+		return font;
+	}
+
+	/**
+	 * The font and render context which identify a set of widths in {@link GlyphWidths#CACHE}.
+	 */
+	private static class Key {
+		private final Font font;
+		private final FontRenderContext context;
+		private final int hash;
+
+		private Key(Font font, FontRenderContext context) {
+			this.font = font;
+			this.context = context;
+			this.hash = font.hashCode()*31 + context.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key))
+				return false;
+			Key other = (Key)o;
+			return font.equals(other.font) && context.equals(other.context);
+		}
+	}
+}
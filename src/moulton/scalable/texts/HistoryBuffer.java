@@ -0,0 +1,372 @@
+package moulton.scalable.texts;
+
+import java.util.Arrays;
+
+/**
+ * The History Buffer class holds the messages of a {@link TextHistory} in a circular array. Messages
+ * are added to the end and, once the buffer holds its maximum number of messages, each new message
+ * replaces the oldest one. Adding, evicting, and reading a message at any index all take constant
+ * time, regardless of how many messages are held.
+ * <p>
+ * The array begins small and doubles as messages are added until it reaches the maximum size, so a
+ * buffer which allows many messages but only holds a few does not reserve space for all of them.
+ * The buffer may also be limited by the number of characters held with {@link #setMaxChars(long)},
+ * in which case the oldest messages are removed until the rest fit, though the newest message is
+ * always kept.
+ * <p>
+ * The buffer also keeps how each message is wrapped into lines, and a running total of the lines of
+ * all the messages before it. Messages are wrapped in the order they were added with
+ * {@link #setWrap(int, int[])}, so the wrapped messages are always the oldest ones. The message
+ * that holds any line can then be found with a binary search in {@link #findLine(long)}.
+ * @author Matthew Moulton
+ */
+public class HistoryBuffer {
+	/**The messages held. The oldest message is at {@link #head}, and the rest follow it, wrapping
+	 * around to the beginning of the array.*/
+	protected String[] messages;
+	/**The index in {@link #messages} of the oldest message.*/
+	protected int head = 0;
+	/**The number of messages held.
+	 * @see #size()*/
+	protected int size = 0;
+	/**The greatest number of messages held at once.
+	 * @see #setMaxSize(int)*/
+	protected int maxSize;
+	/**The number of characters in all of the messages held.
+	 * @see #getChars()*/
+	protected long chars = 0;
+	/**The greatest number of characters held at once. Defaults to no limit.
+	 * @see #setMaxChars(long)*/
+	protected long maxChars = Long.MAX_VALUE;
+	/**The lines of each wrapped message, parallel to {@link #messages}. The start and end index of
+	 * each line in the message are saved one after the other. A message which is shown as a single
+	 * line of all of its characters is saved as null.
+	 * @see #setWrap(int, int[])*/
+	protected int[][] lines;
+	/**The running total of lines of each wrapped message, parallel to {@link #messages}. The total
+	 * of each message counts its lines and all the lines before it, beginning at {@link #lineOrigin}.*/
+	protected long[] lineTotals;
+	/**The running total of lines before the oldest message. The totals are not changed when the
+	 * oldest message is removed. Instead, this is moved to the total of the removed message.*/
+	protected long lineOrigin = 0;
+	/**The number of messages, beginning with the oldest, which have been wrapped.
+	 * @see #getWrapped()*/
+	protected int wrapped = 0;
+	/**The lines of a message with no lines.*/
+	private static final int[] NO_LINES = new int[0];
+
+	/**
+	 * Creates an empty buffer.
+	 * @param maxSize the greatest number of messages to hold at once, as {@link #maxSize}
+	 */
+	public HistoryBuffer(int maxSize) {
+		this.maxSize = Math.max(0, maxSize);
+		messages = new String[Math.min(16, this.maxSize)];
+		lines = new int[messages.length][];
+		lineTotals = new long[messages.length];
+	}
+
+	/**
+	 * Returns the number of messages held.
+	 * @return {@link #size}
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Returns whether the buffer holds no messages.
+	 * @return whether {@link #size} is 0
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the message at the given index, where index 0 is the oldest message held and
+	 * {@link #size()}-1 is the newest.
+	 * @param index the index of the message
+	 * @return the message at index
+	 */
+	public String get(int index) {
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		return messages[slot(index)];
+	}
+
+	/**
+	 * Adds the message as the newest message. If the buffer is full, the oldest message is removed
+	 * to make room, and if the buffer holds more than {@link #maxChars} characters, the oldest
+	 * messages are removed until the rest fit.
+	 * @param message the message to add
+	 * @return whether any message was removed to make room
+	 */
+	public boolean add(String message) {
+		if(maxSize == 0)
+			return false;
+		boolean removed = false;
+		chars += message.length();
+		if(size == maxSize) {
+			//overwrite the oldest
+			unwrapFirst();
+			chars -= messages[head].length();
+			messages[head] = message;
+			lines[head] = null;
+			head = (head + 1) % messages.length;
+			removed = true;
+		}else {
+			if(size == messages.length)
+				resize((int)Math.min(maxSize, Math.max(16, 2L * messages.length)));
+			messages[slot(size)] = message;
+			size++;
+		}
+		while(chars > maxChars && size > 1) {
+			removeFirst();
+			removed = true;
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes the oldest message.
+	 * @return the message removed
+	 */
+	public String removeFirst() {
+		if(size == 0)
+			throw new IndexOutOfBoundsException("the buffer is empty");
+		String first = messages[head];
+		unwrapFirst();
+		chars -= first.length();
+		messages[head] = null;
+		lines[head] = null;
+		head = (head + 1) % messages.length;
+		size--;
+		return first;
+	}
+
+	/**
+	 * Removes all the messages.
+	 */
+	public void clear() {
+		Arrays.fill(messages, null);
+		Arrays.fill(lines, null);
+		head = 0;
+		size = 0;
+		chars = 0;
+		lineOrigin = 0;
+		wrapped = 0;
+	}
+
+	/**
+	 * Sets the greatest number of messages held at once. If more are held already, the oldest are
+	 * removed until the buffer is within the new size.
+	 * @param maxSize the new value of {@link #maxSize}
+	 * @return the number of messages removed
+	 */
+	public int setMaxSize(int maxSize) {
+		maxSize = Math.max(0, maxSize);
+		int removed = 0;
+		while(size > maxSize) {
+			removeFirst();
+			removed++;
+		}
+		this.maxSize = maxSize;
+		if(messages.length > maxSize)
+			resize(maxSize);
+		return removed;
+	}
+	/**
+	 * Sets the greatest number of characters held at once. If more are held already, the oldest
+	 * messages are removed until the rest fit or only the newest message is left.
+	 * @param maxChars the new value of {@link #maxChars}
+	 * @return the number of messages removed
+	 */
+	public int setMaxChars(long maxChars) {
+		this.maxChars = Math.max(0, maxChars);
+		int removed = 0;
+		while(chars > this.maxChars && size > 1) {
+			removeFirst();
+			removed++;
+		}
+		return removed;
+	}
+	/**
+	 * Returns the greatest number of characters held at once.
+	 * @return {@link #maxChars}
+	 */
+	public long getMaxChars() {
+		return maxChars;
+	}
+	/**
+	 * Returns the number of characters in all of the messages held.
+	 * @return {@link #chars}
+	 */
+	public long getChars() {
+		return chars;
+	}
+
+	/**
+	 * Returns the greatest number of messages held at once.
+	 * @return {@link #maxSize}
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the number of messages which have been wrapped. These are always the oldest messages,
+	 * so the next message to wrap is the message at this index.
+	 * @return {@link #wrapped}
+	 */
+	public int getWrapped() {
+		return wrapped;
+	}
+	/**
+	 * Saves the lines that the next message to be wrapped is split into.
+	 * @param index the index of the message, which must be {@link #getWrapped()}
+	 * @param bounds the start and end index in the message of each line, one after the other. Null
+	 * may be given for a message shown as a single line of all of its characters.
+	 */
+	public void setWrap(int index, int[] bounds) {
+		if(index != wrapped || index >= size)
+			throw new IndexOutOfBoundsException("index " + index + ", wrapped " + wrapped + ", size " + size);
+		int slot = slot(index);
+		lines[slot] = bounds;
+		long before = (index == 0)? lineOrigin: lineTotals[slot(index-1)];
+		lineTotals[slot] = before + ((bounds == null)? 1: bounds.length/2);
+		wrapped++;
+	}
+	/**
+	 * Forgets how every message was wrapped, such as when the width they were wrapped to changes.
+	 */
+	public void clearWraps() {
+		Arrays.fill(lines, null);
+		lineOrigin = 0;
+		wrapped = 0;
+	}
+	/**
+	 * Called before the oldest message is removed to keep {@link #lineOrigin} and {@link #wrapped}
+	 * correct.
+	 */
+	private void unwrapFirst() {
+		if(wrapped > 0) {
+			lineOrigin = lineTotals[head];
+			wrapped--;
+		}
+	}
+
+	/**
+	 * Returns the number of lines in the wrapped message.
+	 * @param index the index of the message, which must be less than {@link #getWrapped()}
+	 * @return the number of lines
+	 */
+	public int getLineCount(int index) {
+		int[] bounds = lines[slot(index)];
+		return (bounds == null)? 1: bounds.length/2;
+	}
+	/**
+	 * Returns the index in the wrapped message where the line begins.
+	 * @param index the index of the message, which must be less than {@link #getWrapped()}
+	 * @param line the line of the message
+	 * @return the start of the line (inclusive)
+	 */
+	public int getLineStart(int index, int line) {
+		int[] bounds = lines[slot(index)];
+		return (bounds == null)? 0: bounds[line*2];
+	}
+	/**
+	 * Returns the index in the wrapped message where the line ends.
+	 * @param index the index of the message, which must be less than {@link #getWrapped()}
+	 * @param line the line of the message
+	 * @return the end of the line (exclusive)
+	 */
+	public int getLineEnd(int index, int line) {
+		int slot = slot(index);
+		int[] bounds = lines[slot];
+		return (bounds == null)? messages[slot].length(): bounds[line*2 + 1];
+	}
+	/**
+	 * Returns the text of a line of the wrapped message.
+	 * @param index the index of the message, which must be less than {@link #getWrapped()}
+	 * @param line the line of the message
+	 * @return the characters of the line
+	 */
+	public String getLineText(int index, int line) {
+		int slot = slot(index);
+		int[] bounds = lines[slot];
+		if(bounds == null)
+			return messages[slot];
+		return messages[slot].substring(bounds[line*2], bounds[line*2 + 1]);
+	}
+	/**
+	 * Returns the number of lines in all of the wrapped messages.
+	 * @return the total number of lines
+	 */
+	public long getTotalLines() {
+		return (wrapped == 0)? 0: lineTotals[slot(wrapped-1)] - lineOrigin;
+	}
+	/**
+	 * Returns the number of lines in all of the messages before the given message.
+	 * @param index the index of the message, which must be at most {@link #getWrapped()}
+	 * @return the number of lines before the message
+	 */
+	public long getLinesBefore(int index) {
+		return (index == 0)? 0: lineTotals[slot(index-1)] - lineOrigin;
+	}
+	/**
+	 * Finds the wrapped message which holds the line, where the first line of the oldest message is
+	 * line 0. Since the running totals of lines only increase, this is a binary search.
+	 * @param line the line to find. Must be less than {@link #getTotalLines()}.
+	 * @return the index of the message holding the line
+	 */
+	public int findLine(long line) {
+		long total = lineOrigin + line;
+		int low = 0, high = wrapped - 1;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(lineTotals[slot(mid)] > total)
+				high = mid;
+			else
+				low = mid + 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the lines of a message which has no lines, such as an empty message. Saving these with
+	 * {@link #setWrap(int, int[])} is preferred to creating a new empty array.
+	 * @return an empty array
+	 */
+	public static int[] noLines() {
+		return NO_LINES;
+	}
+
+	/**
+	 * Returns the index in {@link #messages} of the message at the given index.
+	 * @param index the index of the message, from oldest to newest
+	 * @return the index in the array
+	 */
+	protected int slot(int index) {
+		int slot = head + index;
+		return (slot >= messages.length)? slot - messages.length: slot;
+	}
+
+	/**
+	 * Copies the messages into a new array of the given length, with the oldest message first.
+	 * @param length the length of the new array. Must be at least {@link #size}.
+	 */
+	private void resize(int length) {
+		String[] resized = new String[length];
+		int[][] resizedLines = new int[length][];
+		long[] resizedTotals = new long[length];
+		for(int i=0; i<size; i++) {
+			int slot = slot(i);
+			resized[i] = messages[slot];
+			resizedLines[i] = lines[slot];
+			resizedTotals[i] = lineTotals[slot];
+		}
+		messages = resized;
+		lines = resizedLines;
+		lineTotals = resizedTotals;
+		head = 0;
+	}
+}
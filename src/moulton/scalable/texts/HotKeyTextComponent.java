@@ -5,8 +5,8 @@ import moulton.scalable.clickables.Clickable;
 
 /**
  * Implementations of HotkeyTextComponent are instances of {@link Clickable} that can react to the hot key commands
- * of "copy", "cut", "paste", and "select all". The {@link MenuManager} associated with this component, is in charge
- * of detecting when these hot key commands are performed by the user, and to call corresponding events. Moreover,
+ * of "copy", "cut", "paste", "select all", "undo", and "redo". The {@link MenuManager} associated with this component,
+ * is in charge of detecting when these hot key commands are performed by the user, and to call corresponding events. Moreover,
  * the manager will copy the text returned by {@link #copy()} and {@link #cut()} to the system clip board, and will
  * give the contents of the system clipboard (when it can be represented as a string) in the calling of
  * {@link #paste(String)}.
@@ -31,6 +31,14 @@ public interface HotKeyTextComponent extends TextInputComponent {
 	/**Called by the {@link MenuManager} when it registers a select all command from the user. */
 	public abstract void selectAll();
 	
+	/**Called by the {@link MenuManager} when it registers an undo command from the user. Does nothing
+	 * by default, so that components without an edit history need not implement it. */
+	public default void undo() {}
+	
+	/**Called by the {@link MenuManager} when it registers a redo command from the user. Does nothing
+	 * by default, so that components without an edit history need not implement it. */
+	public default void redo() {}
+	
 	/**Even though a class may have the potential to use hot keys, there is a layer of flexibility as to
 	 * whether hot keys will be operable for specific instances.
 	 * @return whether the instance should allow the {@link MenuManager} to alter its contents by user hot
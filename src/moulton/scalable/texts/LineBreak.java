@@ -11,6 +11,12 @@ import java.util.List;
  * broken, such as the remaining line ({@link #LINE}), the remaining text after the break
  * ({@link #REMAINDER}), and whether any characters were consumed ({@link #CHAR_CONSUMED}). These
  * fields are public for easy access, but final to prevent data corruption.
+ * <p>
+ * The same break may be found without creating any strings through
+ * {@link #check(boolean, CharSequence, int, int, int[])}, which gives where the line ends and where
+ * the remainder begins as indices into the text. Breaking a whole text this way is linear in the
+ * length of the text, since each break only looks back over its own line. {@link LineLayout} breaks
+ * text by the same rules and keeps the index of every line in arrays reused between layouts.
  * @author Matthew Moulton
  */
 public class LineBreak {
@@ -87,53 +93,70 @@ public class LineBreak {
 	 * @return the line break instance, containing the result data of the split.
 	 */
 	public static LineBreak check(boolean wordSplit, String line, String rem) {
-		boolean charConsumed = false;
-		String rawLine = null;
+		int[] lineBreak = new int[2];
+		check(wordSplit, line, 0, line.length(), lineBreak);
+		if(lineBreak[1] < line.length())
+			rem = line.substring(lineBreak[1]) + rem;
+		if(lineBreak[0] != lineBreak[1]) //a character was consumed between the line and the remainder
+			return new LineBreak(line.substring(0, lineBreak[0]), line.substring(0, lineBreak[1]), rem);
+		else
+			return new LineBreak(line.substring(0, lineBreak[0]), rem);
+	}
+	/**
+	 * Splits the line of text from start to end as {@link #check(boolean, String, String)} does, but
+	 * gives the result as indices into the text rather than as new strings. Nothing is allocated.
+	 * <p>
+	 * As with the other check, the line is assumed to be one character too long, so the character at
+	 * end-1 is the one which did not fit. The line must hold at least that character.
+	 * @param wordSplit whether words may be split midway when not necessary
+	 * @param text the text holding the line
+	 * @param start the index in text where the line begins (inclusive)
+	 * @param end the index in text where the line which is too long ends (exclusive)
+	 * @param result an array of at least two elements to save the result in. Index 0 is set to where
+	 * the line should end (exclusive), which is {@link #LINE}. Index 1 is set to where the remainder
+	 * begins, which is after {@link #RAW_LINE}. If a character was consumed, the remainder begins one
+	 * after the end of the line. Otherwise, the two are equal.
+	 * @return the index where the remainder begins, as saved in result[1]
+	 */
+	public static int check(boolean wordSplit, CharSequence text, int start, int end, int[] result) {
+		//by default, the whole line is kept
+		int lineEnd = end;
+		int remStart = end;
 		
 		if(!wordSplit) {
-			int ii=line.length()-1;
-			for(; ii>-1; ii--) { //backtrack to find a suitable character to break on
-				char c = line.charAt(ii);
+			int ii=end-1;
+			for(; ii>=start; ii--) { //backtrack to find a suitable character to break on
+				char c = text.charAt(ii);
 				if(c == '\n' || c == ' ') { //these characters are just consumed in the break
-					charConsumed = true;
-					rem = line.substring(ii+1) + rem;
-					rawLine = line.substring(0, ii+1);
-					line = line.substring(0, ii);
+					lineEnd = ii;
+					remStart = ii+1;
 					break;
 				}else if(c == '-') {
-					if(ii<line.length()-1) { //if the - was not the char too long
+					if(ii<end-1) { //if the - was not the char too long
 						//keep the - on this line
-						rem = line.substring(ii+1) + rem;
-						line = line.substring(0, ii+1);
+						lineEnd = ii+1;
+						remStart = ii+1;
 					}
 					break;
 				}
 			}
-			if(ii == -1) //no break character found, split the word
+			if(ii < start) //no break character found, split the word
 				wordSplit = true;
 		}if(wordSplit) {
-			int length = line.length();
+			lineEnd = end-1;
 			//if that character was a new line, consume it
-			if(line.charAt(length-1) == '\n') {
-				charConsumed = true;
-				rawLine = line;
-				line = line.substring(0, length-1);
-			}else {
-				rem = line.charAt(length-1) + rem;
-				line = line.substring(0, length-1);
-			}
+			remStart = (text.charAt(end-1) == '\n')? end: end-1;
 		}
 		
-		if(charConsumed)
-			return new LineBreak(line, rawLine, rem);
-		else
-			return new LineBreak(line, rem);
+		result[0] = lineEnd;
+		result[1] = remStart;
+		return remStart;
 	}
 	
 	/**
 	 * Splits the given text into lines that are at most the width of <code>maxWidth</code>,
-	 * by using {@link #check(boolean, String, String)} and widths determined by
-	 * {@link FontMetrics#stringWidth(String)}.
+	 * by using {@link #check(boolean, CharSequence, int, int, int[])} and widths determined by
+	 * {@link GlyphWidths}. Only the strings of the lines returned are created.
 	 * @param text the text to be split. All salient characters will end up in the return.
 	 * @param maxWidth the max width that each line may be.
 	 * @param metrics the font metrics used to determine the width of each line in processing.
@@ -143,19 +166,26 @@ public class LineBreak {
 	 */
 	public static String[] lines(String text, int maxWidth, FontMetrics metrics, boolean wordSplit) {
 		List<String> lines = new ArrayList<>();
+		GlyphWidths widths = GlyphWidths.of(metrics);
+		int[] lineBreak = new int[2];
 		
-		String rem = text; //could strip trailing here
-		while(metrics.stringWidth(rem) > maxWidth) {
-			String line = ""; //add characters to line until it exceeds the width
-			while(metrics.stringWidth(line) <= maxWidth) {
-				line += rem.charAt(0);
-				rem = rem.substring(1);
-			}
-			LineBreak lb = check(wordSplit, line, rem);
-			lines.add(lb.LINE);
-			rem = lb.REMAINDER;
+		int length = text.length();
+		int start = 0; //the start of the remaining text
+		while(true) {
+			//add characters to the line until it exceeds the width
+			int width = 0;
+			int end = start;
+			while(end < length && width <= maxWidth)
+				width += widths.charWidth(text, end++);
+			if(width <= maxWidth) //the rest of the text fits on one line
+				break;
+			check(wordSplit, text, start, end, lineBreak);
+			if(lineBreak[1] == start) //a character wider than the whole line. Place it anyways
+				lineBreak[0] = lineBreak[1] = start+1;
+			lines.add(text.substring(start, lineBreak[0]));
+			start = lineBreak[1];
 		}
-		lines.add(rem);
+		lines.add(text.substring(start));
 		
 		return lines.toArray(new String[lines.size()]);
 	}
@@ -0,0 +1,612 @@
+package moulton.scalable.texts;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.font.FontRenderContext;
+import java.util.Arrays;
+
+/**
+ * The Line Layout class breaks text into lines no wider than a given width. It is the offset based
+ * counterpart of {@link LineBreak#lines(String, int, FontMetrics, boolean)}: rather than creating a
+ * string for each line, it saves where each line starts and ends in the original text, along with
+ * the width of the line in pixels. Lines are broken by the same rules as
+ * {@link LineBreak#check(boolean, CharSequence, int, int, int[])}.
+ * <p>
+ * A layout is computed by {@link #layout(CharSequence, FontMetrics, int, boolean)}, which walks the
+ * text once and measures each character with its advance width. Therefore the work is linear in
+ * the length of the text. Instances are meant to be reused: the arrays holding the line data only
+ * grow when the text needs more lines than ever before, so repeated layouts do not allocate.
+ * <p>
+ * A layout can also be kept between renders through
+ * {@link #layout(CharSequence, int, FontMetrics, int, boolean)}, which only breaks the text again
+ * if the version of the text, the font, the width, or the word splitting differ from the last layout.
+ * If the owner of the text reports each change through {@link #edited(int, int, int)}, only the
+ * lines affected by the changes are broken again: from the first line whose break depended on the
+ * changed text until the new lines start at the same places as the old lines after the change.
+ * Changes which are not reported by range should be reported through {@link #invalidate()}.
+ * <p>
+ * If a {@link BreakStrategy} is given through {@link #setBreakStrategy(BreakStrategy)}, lines are
+ * instead broken where the strategy allows. The breaks of each paragraph are found once and cached
+ * by the strategy, so laying out the same text at another width only fits the lines again.
+ * @author Matthew Moulton
+ */
+public class LineLayout {
+	/**The text which was last laid out.*/
+	protected CharSequence text = "";
+	/**The font metrics used to measure {@link #text}.*/
+	protected FontMetrics metrics;
+	/**The shared widths of the characters in the font of {@link #metrics}.*/
+	protected GlyphWidths widths;
+	/**The index in {@link #text} where each line begins.
+	 * @see #getLineStart(int)*/
+	protected int[] lineStarts = new int[8];
+	/**The index in {@link #text} where each line ends (exclusive). This excludes any character
+	 * consumed in the line break, so the next line may begin one character later.
+	 * @see #getLineEnd(int)*/
+	protected int[] lineEnds = new int[8];
+	/**The width in pixels of each line.
+	 * @see #getLineWidth(int)*/
+	protected int[] lineWidths = new int[8];
+	/**The index of the last character of {@link #text} which was examined to decide where each line
+	 * ends. If a line ends at the end of the text, the value is the length of the text. A change at or
+	 * before this index may change where the line ends.*/
+	protected int[] lineChecks = new int[8];
+	/**The number of lines in the layout. There is always at least one line, even if it is empty.
+	 * @see #getLineCount()*/
+	protected int lineCount = 0;
+
+	/**The version of the text given in the last call to
+	 * {@link #layout(CharSequence, int, FontMetrics, int, boolean)}, or -1 if the layout was not
+	 * created through that method.*/
+	protected int version = -1;
+	/**The maximum width of each line in the last layout.*/
+	protected int maxWidth;
+	/**Whether words could be split midway in the last layout.*/
+	protected boolean wordSplit;
+	/**The font that the last layout was measured in.*/
+	protected Font font;
+	/**The font render context that the last layout was measured in.*/
+	protected FontRenderContext renderContext;
+
+	/**The first index of the text changed since the last layout, or -1 if no change was reported.
+	 * @see #edited(int, int, int)*/
+	protected int editStart = -1;
+	/**The end of the changed text since the last layout, in indices of the laid out text.*/
+	protected int editEnd;
+	/**How many characters longer the text is than the laid out text.*/
+	protected int editDelta;
+	/**Whether the text was changed since the last layout in a way that was not reported by range.
+	 * @see #invalidate()*/
+	protected boolean invalid = false;
+	/**Decides where lines may be broken, or null to break lines by the rules of {@link LineBreak}.
+	 * @see #setBreakStrategy(BreakStrategy)*/
+	protected BreakStrategy breakStrategy = null;
+
+	//the result of the most recent call to breakLine(int)
+	private int breakEnd, breakWidth, breakCheck;
+	//lines broken again after an edit, before they are placed into the layout
+	private int[] newStarts = new int[8], newEnds = new int[8], newWidths = new int[8], newChecks = new int[8];
+	//the paragraph of the text whose breaks were last given by the break strategy
+	private int paragraphStart = -1, paragraphEnd;
+	private BreakStrategy.Breaks paragraphBreaks;
+
+	/**
+	 * Lays out the text as {@link #layout(CharSequence, FontMetrics, int, boolean)} would, unless
+	 * the layout already holds this version of the text broken with the same font, width, and word
+	 * splitting. In that case, the lines from last time are kept and no characters are measured.
+	 * If the version differs but each change since the last layout was reported through
+	 * {@link #edited(int, int, int)}, only the lines around the changes are broken again.
+	 * @param text the text to lay out
+	 * @param version the version of the text. The owner of the text must give a different version
+	 * whenever the content of the text changes.
+	 * @param metrics the font metrics used to measure each character
+	 * @param maxWidth the maximum width of each line in pixels
+	 * @param wordSplit whether words may be split midway when not necessary
+	 * @return whether any of the text was laid out again
+	 */
+	public boolean layout(CharSequence text, int version, FontMetrics metrics, int maxWidth, boolean wordSplit) {
+		if(version != -1 && this.version != -1 && maxWidth == this.maxWidth && wordSplit == this.wordSplit
+				&& metrics.getFont().equals(font) && metrics.getFontRenderContext().equals(renderContext)) {
+			if(version == this.version) {
+				this.text = text;
+				this.metrics = metrics;
+				this.widths = GlyphWidths.of(metrics);
+				return false;
+			}
+			if(editStart != -1 && !invalid) {
+				this.text = text;
+				this.metrics = metrics;
+				this.widths = GlyphWidths.of(metrics);
+				relayout();
+				editStart = -1;
+				this.version = version;
+				return true;
+			}
+		}
+		layout(text, metrics, maxWidth, wordSplit);
+		this.version = version;
+		return true;
+	}
+
+	/**
+	 * Reports that the characters of the text from <code>start</code> to
+	 * <code>start+removed</code> were replaced by <code>inserted</code> characters. The indices are
+	 * of the text as it was just before this change. Changes are accumulated until the next call to
+	 * {@link #layout(CharSequence, int, FontMetrics, int, boolean)}.
+	 * @param start the index of the first character changed
+	 * @param removed the number of characters removed
+	 * @param inserted the number of characters inserted in their place
+	 */
+	public void edited(int start, int removed, int inserted) {
+		if(editStart == -1) {
+			editStart = start;
+			editEnd = start + removed;
+			editDelta = inserted - removed;
+			return;
+		}
+		if(start < editStart)
+			editStart = start;
+		//changes after the earlier changes are shifted by how much the text grew
+		int end = start + removed - editDelta;
+		if(end > editEnd)
+			editEnd = end;
+		editDelta += inserted - removed;
+	}
+
+	/**
+	 * Reports that the text was changed in a way that was not reported by
+	 * {@link #edited(int, int, int)}. The next layout will break all of the text again.
+	 */
+	public void invalidate() {
+		invalid = true;
+	}
+
+	/**
+	 * Breaks the text into lines that are at most <code>maxWidth</code> pixels wide. A new line
+	 * character always ends the line it is on. If a line is too wide and <code>wordSplit</code> is
+	 * false, the line is broken on the last space (which is consumed) or hyphen (which is kept) of
+	 * the line. Otherwise, or if there is no such character, the line is broken before the character
+	 * which did not fit. A line always holds at least one character unless the line is empty.
+	 * <p>
+	 * If the text ends with a line break, an empty line is included at the end.
+	 * @param text the text to lay out
+	 * @param metrics the font metrics used to measure each character
+	 * @param maxWidth the maximum width of each line in pixels
+	 * @param wordSplit whether words may be split midway when not necessary
+	 */
+	public void layout(CharSequence text, FontMetrics metrics, int maxWidth, boolean wordSplit) {
+		setMeasures(text, metrics, maxWidth, wordSplit);
+		lineCount = 0;
+
+		int start = 0;
+		while(start != -1) {
+			int next = breakLine(start);
+			addLine(start, breakEnd, breakWidth, breakCheck);
+			start = next;
+		}
+	}
+
+	/**
+	 * Finds where the line beginning at <code>start</code> should end, as described in
+	 * {@link #layout(CharSequence, FontMetrics, int, boolean)}. The end, width, and last index checked
+	 * are saved in {@link #breakEnd}, {@link #breakWidth}, and {@link #breakCheck}.
+	 * @param start the index in the text where the line begins
+	 * @return the index where the next line begins, or -1 if this line ends at the end of the text
+	 */
+	private int breakLine(int start) {
+		if(breakStrategy != null)
+			return breakStrategyLine(start);
+		int length = text.length();
+		int width = 0;
+		//the last break characters on the line and the line widths if broken on them
+		int space = -1, spaceWidth = 0;
+		int hyphen = -1, hyphenWidth = 0;
+		for(int i=start; i<length; i++) {
+			char c = text.charAt(i);
+			if(c == '\n') { //a new line is consumed and always ends the line
+				setBreak(i, width, i);
+				return i+1;
+			}
+			int advance = widths.charWidth(text, i);
+			if(width + advance <= maxWidth) {
+				if(c == ' ') {
+					space = i;
+					spaceWidth = width;
+				}
+				width += advance;
+				if(c == '-') {
+					hyphen = i;
+					hyphenWidth = width;
+				}
+				continue;
+			}
+
+			//character c is too long for the line
+			if(!wordSplit && c == ' ') { //consume the space that was too long
+				setBreak(i, width, i);
+				return i+1;
+			}else if(!wordSplit && c == '-') { //the hyphen stays on the line even if it is too long
+				setBreak(i+1, width + advance, i);
+				return i+1;
+			}else if(!wordSplit && space > hyphen) {
+				setBreak(space, spaceWidth, i);
+				return space+1;
+			}else if(!wordSplit && hyphen > -1) {
+				setBreak(hyphen+1, hyphenWidth, i);
+				return hyphen+1;
+			}else if(i > start) { //split the word before c
+				setBreak(i, width, i);
+				return i;
+			}else { //c is wider than the whole line. Place it anyways so that progress is made
+				int next = i + Character.charCount(Character.codePointAt(text, i)); //with its low surrogate
+				setBreak(next, advance, i);
+				return next;
+			}
+		}
+		setBreak(length, width, length);
+		return -1;
+	}
+	private void setBreak(int end, int width, int check) {
+		breakEnd = end;
+		breakWidth = width;
+		breakCheck = check;
+	}
+
+	/**
+	 * Finds where the line beginning at <code>start</code> should end when {@link #breakStrategy}
+	 * is set. The line is broken before the character which is too long at the last place the
+	 * strategy allows, and a whitespace character which ends the line is consumed. If words may be
+	 * split or there is no place to break, the line is split between clusters of characters instead.
+	 * @param start the index in the text where the line begins
+	 * @return the index where the next line begins, or -1 if this line ends at the end of the text
+	 */
+	private int breakStrategyLine(int start) {
+		int length = text.length();
+		if(paragraphStart == -1 || start < paragraphStart || start > paragraphEnd) {
+			int pStart = start, pEnd = start;
+			while(pStart > 0 && text.charAt(pStart-1) != '\n')
+				pStart--;
+			while(pEnd < length && text.charAt(pEnd) != '\n')
+				pEnd++;
+			paragraphBreaks = breakStrategy.getBreaks(text, pStart, pEnd);
+			paragraphStart = pStart;
+			paragraphEnd = pEnd;
+		}
+		int[] lines = paragraphBreaks.lines, clusters = paragraphBreaks.clusters;
+		int width = 0;
+		for(int i=start; i<paragraphEnd; i++) {
+			char c = text.charAt(i);
+			int advance = widths.charWidth(text, i);
+			if(width + advance <= maxWidth) {
+				width += advance;
+				continue;
+			}
+
+			//character c is too long for the line, so find the last places before it to break or split
+			int relative = i - paragraphStart;
+			if(!wordSplit && Character.isWhitespace(c)) { //consume the space that was too long
+				setBreak(i, width, i);
+				return i+1;
+			}
+			if(!wordSplit) {
+				int found = BreakStrategy.Breaks.after(lines, relative) - 1;
+				int next = (found < 0)? -1: lines[found] + paragraphStart;
+				if(next > start) {
+					//a whitespace character before the break is consumed
+					int end = next;
+					if(Character.isWhitespace(text.charAt(end-1)))
+						end--;
+					setBreak(end, width - widths.measure(text, end, i), i);
+					return next;
+				}
+			}
+			int found = (clusters == null)? relative: BreakStrategy.Breaks.after(clusters, relative) - 1;
+			int cluster = (clusters == null)? i: (found < 0)? -1: clusters[found] + paragraphStart;
+			if(cluster > start) { //split the word before the cluster of c
+				setBreak(cluster, width - widths.measure(text, cluster, i), i);
+				return cluster;
+			}
+			//the first cluster is wider than the whole line. Place it anyways so that progress is made
+			int end = i+1;
+			if(clusters != null)
+				end = (found+1 < clusters.length)? clusters[found+1] + paragraphStart: paragraphEnd;
+			setBreak(end, width + widths.measure(text, i, end), end-1);
+			return (end < length)? end: -1;
+		}
+		setBreak(paragraphEnd, width, paragraphEnd);
+		return (paragraphEnd < length)? paragraphEnd+1: -1;
+	}
+
+	/**
+	 * Breaks the lines affected by the changes reported since the last layout again. Begins at the
+	 * first line whose end was decided by examining changed text, and stops once a new line begins
+	 * after the changes at the same place (shifted by the change in length) that an old line began.
+	 * Since the text from there on is unchanged, the rest of the old lines are kept, only shifted.
+	 */
+	private void relayout() {
+		//the breaks a strategy allows depend on the whole paragraph, so its lines are all broken again
+		int from = editStart;
+		paragraphStart = -1;
+		if(breakStrategy != null) {
+			while(from > 0 && text.charAt(from-1) != '\n')
+				from--;
+		}
+		//lines are decided in order, so the indices checked never decrease
+		int low = 0, high = lineCount - 1;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(lineChecks[mid] < from)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		int first = low;
+		int newEditEnd = editEnd + editDelta;
+
+		int count = 0;
+		int resync = lineCount; //the first old line kept after the new lines
+		int old = first + 1;
+		int start = lineStarts[first];
+		while(start != -1) {
+			int next = breakLine(start);
+			if(count == newStarts.length) {
+				int newLength = count * 2;
+				newStarts = Arrays.copyOf(newStarts, newLength);
+				newEnds = Arrays.copyOf(newEnds, newLength);
+				newWidths = Arrays.copyOf(newWidths, newLength);
+				newChecks = Arrays.copyOf(newChecks, newLength);
+			}
+			newStarts[count] = start;
+			newEnds[count] = breakEnd;
+			newWidths[count] = breakWidth;
+			newChecks[count] = breakCheck;
+			count++;
+
+			if(next >= newEditEnd && (breakStrategy == null || text.charAt(next-1) == '\n')) {
+				//see if an old line began at the same place
+				int oldStart = next - editDelta;
+				while(old < lineCount && lineStarts[old] < oldStart)
+					old++;
+				if(old < lineCount && lineStarts[old] == oldStart) {
+					resync = old;
+					break;
+				}
+			}
+			start = next;
+		}
+
+		//move the old lines after the changes into place
+		int kept = lineCount - resync;
+		int newCount = first + count + kept;
+		if(newCount > lineStarts.length) {
+			int newLength = Math.max(lineStarts.length * 2, newCount);
+			lineStarts = Arrays.copyOf(lineStarts, newLength);
+			lineEnds = Arrays.copyOf(lineEnds, newLength);
+			lineWidths = Arrays.copyOf(lineWidths, newLength);
+			lineChecks = Arrays.copyOf(lineChecks, newLength);
+		}
+		int to = first + count;
+		System.arraycopy(lineStarts, resync, lineStarts, to, kept);
+		System.arraycopy(lineEnds, resync, lineEnds, to, kept);
+		System.arraycopy(lineWidths, resync, lineWidths, to, kept);
+		System.arraycopy(lineChecks, resync, lineChecks, to, kept);
+		if(editDelta != 0) {
+			for(int i=to; i<newCount; i++) {
+				lineStarts[i] += editDelta;
+				lineEnds[i] += editDelta;
+				lineChecks[i] += editDelta;
+			}
+		}
+		//then the new lines
+		System.arraycopy(newStarts, 0, lineStarts, first, count);
+		System.arraycopy(newEnds, 0, lineEnds, first, count);
+		System.arraycopy(newWidths, 0, lineWidths, first, count);
+		System.arraycopy(newChecks, 0, lineChecks, first, count);
+		lineCount = newCount;
+	}
+
+	/**
+	 * Lays out a single line of the text, beginning at <code>start</code> and continuing until the
+	 * next character would exceed <code>maxWidth</code> or is a new line. The result is saved as
+	 * the only line of this layout.
+	 * @param text the text to lay out
+	 * @param metrics the font metrics used to measure each character
+	 * @param start the index in the text to begin the line at
+	 * @param maxWidth the maximum width of the line in pixels
+	 */
+	public void layoutLine(CharSequence text, FontMetrics metrics, int start, int maxWidth) {
+		setMeasures(text, metrics, maxWidth, false);
+		lineCount = 0;
+
+		int length = text.length();
+		int width = 0;
+		int end = start;
+		while(end < length) {
+			char c = text.charAt(end);
+			if(c == '\n')
+				break;
+			int advance = widths.charWidth(text, end);
+			if(width + advance > maxWidth)
+				break;
+			width += advance;
+			end++;
+		}
+		addLine(start, end, width, end);
+	}
+
+	/**
+	 * Saves what a new layout is measured with. The layout is no longer considered to be of any
+	 * version until one is given, and any reported changes are forgotten.
+	 * @param text the text to lay out
+	 * @param metrics the font metrics used to measure each character
+	 * @param maxWidth the maximum width of each line in pixels
+	 * @param wordSplit whether words may be split midway when not necessary
+	 */
+	private void setMeasures(CharSequence text, FontMetrics metrics, int maxWidth, boolean wordSplit) {
+		this.text = text;
+		this.metrics = metrics;
+		widths = GlyphWidths.of(metrics);
+		this.maxWidth = maxWidth;
+		this.wordSplit = wordSplit;
+		font = metrics.getFont();
+		renderContext = metrics.getFontRenderContext();
+		version = -1;
+		editStart = -1;
+		invalid = false;
+		paragraphStart = -1;
+	}
+
+	/**
+	 * Sets the strategy deciding where lines may be broken. The next layout breaks all the text
+	 * again.
+	 * @param breakStrategy the strategy, or null to break lines by the rules of {@link LineBreak}
+	 * @see #breakStrategy
+	 */
+	public void setBreakStrategy(BreakStrategy breakStrategy) {
+		this.breakStrategy = breakStrategy;
+		version = -1;
+		paragraphStart = -1;
+	}
+	/**
+	 * @return the strategy deciding where lines may be broken, or null if lines are broken by the
+	 * rules of {@link LineBreak}
+	 */
+	public BreakStrategy getBreakStrategy() {
+		return breakStrategy;
+	}
+
+	/**
+	 * Saves the line to the end of the layout, growing the arrays if necessary.
+	 * @param start the start of the line
+	 * @param end the end of the line
+	 * @param width the width of the line
+	 * @param check the last index examined to decide the end of the line
+	 */
+	protected void addLine(int start, int end, int width, int check) {
+		if(lineCount == lineStarts.length) {
+			int newLength = lineCount * 2;
+			lineStarts = Arrays.copyOf(lineStarts, newLength);
+			lineEnds = Arrays.copyOf(lineEnds, newLength);
+			lineWidths = Arrays.copyOf(lineWidths, newLength);
+			lineChecks = Arrays.copyOf(lineChecks, newLength);
+		}
+		lineStarts[lineCount] = start;
+		lineEnds[lineCount] = end;
+		lineWidths[lineCount] = width;
+		lineChecks[lineCount] = check;
+		lineCount++;
+	}
+
+	/**
+	 * Returns the number of lines in the layout.
+	 * @return {@link #lineCount}
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+	/**
+	 * Returns where the line begins in the text.
+	 * @param line the index of the line
+	 * @return the index of the first character of the line
+	 */
+	public int getLineStart(int line) {
+		return lineStarts[line];
+	}
+	/**
+	 * Returns where the line ends in the text, excluding any character consumed in the break.
+	 * @param line the index of the line
+	 * @return the index after the last character shown on the line
+	 */
+	public int getLineEnd(int line) {
+		return lineEnds[line];
+	}
+	/**
+	 * Returns the width of the line in pixels.
+	 * @param line the index of the line
+	 * @return the width of the line
+	 */
+	public int getLineWidth(int line) {
+		return lineWidths[line];
+	}
+	/**
+	 * Returns the text of the line. Creates a new string, so it should only be used for lines
+	 * which are actually shown.
+	 * @param line the index of the line
+	 * @return the characters shown on the line
+	 */
+	public String getLineText(int line) {
+		return text.subSequence(lineStarts[line], lineEnds[line]).toString();
+	}
+
+	/**
+	 * Finds the line which the index in the text is shown on. An index at the end of a line
+	 * belongs to that line, whereas an index after a consumed character belongs to the next line.
+	 * Found by a binary search, so the cost is logarithmic in the number of lines.
+	 * @param index the index in the text
+	 * @return the line which holds the index
+	 */
+	public int getLineOf(int index) {
+		int low = 0;
+		int high = lineCount - 1;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(lineEnds[mid] < index)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the width of the characters of {@link #text} between start and end.
+	 * @param start the first index to measure (inclusive)
+	 * @param end the last index to measure (exclusive)
+	 * @return the sum of the advances of each character in the range
+	 */
+	public int getAdvance(int start, int end) {
+		return widths.measure(text, start, end);
+	}
+
+	/**
+	 * Returns the width of the characters of the text between start and end, measured as the sum
+	 * of each character's advance width as saved in {@link GlyphWidths}.
+	 * @param text the text to measure
+	 * @param start the first index to measure (inclusive)
+	 * @param end the last index to measure (exclusive)
+	 * @param metrics the font metrics to measure with
+	 * @return the sum of the advances of each character in the range
+	 */
+	public static int measure(CharSequence text, int start, int end, FontMetrics metrics) {
+		return GlyphWidths.of(metrics).measure(text, start, end);
+	}
+
+	/**
+	 * Finds the earliest index such that the characters from it until <code>end</code> fit in a
+	 * single line of the given width. The search stops after any new line character.
+	 * @param text the text to search in
+	 * @param end the index where the line should end
+	 * @param maxWidth the maximum width of the line in pixels
+	 * @param metrics the font metrics to measure with
+	 * @return the start of the widest line ending at <code>end</code>
+	 */
+	public static int fitBefore(CharSequence text, int end, int maxWidth, FontMetrics metrics) {
+		GlyphWidths widths = GlyphWidths.of(metrics);
+		int width = 0;
+		int start = end;
+		while(start > 0) {
+			char c = text.charAt(start - 1);
+			if(c == '\n')
+				break;
+			int before = start - 1;
+			if(Character.isLowSurrogate(c) && before > 0 && Character.isHighSurrogate(text.charAt(before - 1)))
+				before--; //a surrogate pair is measured and kept as one
+			width += widths.measure(text, before, start);
+			if(width > maxWidth)
+				break;
+			start = before;
+		}
+		return start;
+	}
+
+}
@@ -0,0 +1,82 @@
+package moulton.scalable.texts;
+
+import java.util.Arrays;
+
+/**
+ * The Masked Text class shows some text with every character replaced by a mask, such as the text
+ * of a password box. It is a view of the text rather than a copy, so its length always follows the
+ * length of the text masked and no string of the whole masked text is built unless
+ * {@link #toString()} is called.
+ * <p>
+ * Runs of the mask are taken from one string of repeated masks, which only grows when a longer run
+ * is requested. Since every character is the same, the width of any range is found by
+ * {@link GlyphWidths#measure(CharSequence, int, int)} from the width of a single mask.
+ * @author Matthew Moulton
+ */
+public class MaskedText implements CharSequence {
+	/**The text which is masked. Only its length is read.*/
+	protected final CharSequence text;
+	/**The character shown for every character of {@link #text}.*/
+	protected final char mask;
+	/**A string of {@link #mask} repeated at least as long as any run requested so far.
+	 * @see #subSequence(int, int)*/
+	private String masks = "";
+
+	/**
+	 * @param text the text to mask, as {@link #text}
+	 * @param mask the character shown in place of each character, as {@link #mask}
+	 */
+	public MaskedText(CharSequence text, char mask) {
+		this.text = text;
+		this.mask = mask;
+	}
+
+	@Override
+	public int length() {
+		return text.length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		if(index < 0 || index >= text.length())
+			throw new IndexOutOfBoundsException("index " + index + ", length " + text.length());
+		return mask;
+	}
+
+	/**
+	 * Returns a string of the mask as long as the range. The string is taken from {@link #masks},
+	 * which is doubled in length whenever a longer run is needed.
+	 */
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if(start < 0 || end > text.length() || start > end)
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + text.length());
+		return run(end - start);
+	}
+
+	/**
+	 * Returns a string of the mask repeated the given number of times.
+	 * @param length the number of masks
+	 * @return the run of masks
+	 */
+	public String run(int length) {
+		if(masks.length() < length) {
+			char[] chars = new char[Math.max(length, 2*masks.length())];
+			Arrays.fill(chars, mask);
+			masks = new String(chars);
+		}
+		return (masks.length() == length)? masks: masks.substring(0, length);
+	}
+
+	/**
+	 * @return the character shown in place of each character
+	 */
+	public char getMask() {
+		return mask;
+	}
+
+	@Override
+	public String toString() {
+		return run(text.length());
+	}
+}
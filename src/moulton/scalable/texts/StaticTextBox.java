@@ -34,7 +34,7 @@ public class StaticTextBox extends TextBox {
 	@Deprecated(since="1.15")
 	public StaticTextBox(String id, String message, Panel parent, int x, int y, Font font, Color color) {
 		super(message, parent, x, y, font, color);
-		this.id = id;
+		setId(id);
 		blinkTime = -1;
 	}
 	/**
@@ -59,7 +59,7 @@ public class StaticTextBox extends TextBox {
 	public StaticTextBox(String id, String message, Panel parent, String x, String y, String width,
 			String height, Font font, Color color) {
 		super(message, parent, x, y, width, height, font, color);
-		this.id = id;
+		setId(id);
 		blinkTime = -1;
 	}
 	
@@ -7,12 +7,22 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Polygon;
 import java.awt.Rectangle;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import moulton.scalable.clickables.Clickable;
 import moulton.scalable.containers.Panel;
 import moulton.scalable.draggables.DraggableComponent;
 import moulton.scalable.draggables.ScrollBar;
 import moulton.scalable.draggables.ScrollableComponent;
+import moulton.scalable.utils.FontCache;
 import moulton.scalable.utils.MenuSolver.Expression;
 
 /**
@@ -39,10 +49,10 @@ import moulton.scalable.utils.MenuSolver.Expression;
  */
 public class TextBox extends Clickable implements DraggableComponent, HotKeyTextComponent, ScrollableComponent {
 	//core fields
-	/**The display string of the text box.
+	/**The display text of the text box. Held in a gap buffer so that edits do not copy the whole text.
 	 * @see #getMessage()
 	 * @see #setMessage(String)*/
-	protected String message;
+	protected TextBuffer message = new TextBuffer();
 	/**Displays this string on the text box when the {@link message} is empty.
 	 * @see #setHint(String)
 	 * @see #getHint()*/
@@ -129,6 +139,10 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	 * @see #setCharMask(Character)
 	 * @see #getShowMessage()*/
 	protected Character charMask = null;
+	/**The view of {@link #message} shown when there is a printable {@link #charMask}. It is created
+	 * the first time the message is shown with a new mask, and reused after that.
+	 * @see #getShowMessage()*/
+	protected MaskedText maskedMessage = null;
 	/**Whether input can be put outside of the visible box. Defaults to true.
 	 * @see #getHasVirtualSpace()
 	 * @see #setHasVirtualSpace(boolean)*/
@@ -155,7 +169,27 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	//cached
 	/**The font metrics used by the Graphics object that was last rendered on*/
 	protected FontMetrics fontMetrics;
-	
+	/**The shared widths of the characters in the font of {@link #fontMetrics}.*/
+	protected GlyphWidths glyphWidths;
+	/**The layout of the lines shown in the most recent render. Multi-line boxes keep the layout
+	 * between renders until {@link #textVersion}, the font, the width, or {@link #wordSplitting}
+	 * changes.*/
+	protected LineLayout layout = new LineLayout();
+	/**Incremented whenever the text shown in the box may have changed. Used to know when the
+	 * {@link #layout} must be computed again.
+	 * @see #textChanged()*/
+	protected int textVersion = 0;
+	/**Keeps the shaped glyphs of each row of text between renders, or null if the rows are shaped
+	 * each time they are drawn. Defaults to null.
+	 * @see #setGlyphCaching(boolean)*/
+	protected GlyphRuns glyphRuns = null;
+	/**The history of the edits made to {@link #message}, which are undone and redone by hot keys.
+	 * Typing is grouped so that each run of keystrokes on one line is undone at once.
+	 * @see #undo()
+	 * @see #redo()
+	 * @see #getEditHistory()*/
+	protected EditHistory editHistory = new EditHistory(EditHistory.DEFAULT_MAX_BYTES);
+
 	/**
 	 * @param message the string displayed in the box
 	 * @param parent the panel that this text box will reside upon
@@ -179,7 +213,7 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	@Deprecated(since="1.15")
 	public TextBox(String id, String message, Panel parent, String x, String y, String width, String height, Font font, Color color) {
 		super(parent, x, y);
-		this.id = id;
+		setId(id);
 		this.width = solve.parse(width, true, false);
 		this.height = solve.parse(height, true, false);
 		init(message, color, font);
@@ -202,7 +236,7 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	@Deprecated(since="1.15")
 	public TextBox(String id, String message, Panel parent, int x, int y, Font font, Color color) {
 		super(parent,x,y);
-		this.id = id;
+		setId(id);
 		init(message, color, font);
 	}
 	
@@ -214,9 +248,9 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	 * @param font the font
 	 */
 	private void init(String message, Color color, Font font) {
-		if(message == null)
-			message = "";
-		this.message = message;
+		if(message != null)
+			this.message.setText(message);
+		this.message.setHistory(editHistory);
 		this.color = color;
 		this.font = font;
 	}
@@ -254,6 +288,7 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	 */
 	public TextBox setHint(String hint){
 		this.hint = hint;
+		textChanged();
 		return this;
 	}
 	
@@ -295,12 +330,11 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 			int ww = rightX-leftX;
 			
 			int hheight = fontMetrics.getHeight();
-			String line = "";
 			int rows = hh/hheight;
 			int centeringY = (hh-(rows*hheight))/2;
 			//find which row the click was on
 			int row = rows; //default to bottom (impossible index)
-			int bufferWidth = fontMetrics.stringWidth(bufferChar)/2;
+			int bufferWidth = glyphWidths.measure(bufferChar)/2;
 			if(mouseY-topY < 2*fontMetrics.getLeading() + centeringY) { //above the top row
 				if(rows>1) { //multi-line box
 					//the index will be the end of the row above the start shift
@@ -338,84 +372,67 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 				//or for the right margin, would be the end for shift once more. check for shift modifications later
 			}
 			
-			int sum = 0; //variable that will keep track of the number of letters shown thus far
-			String rem = message; //the remainder to process. We only find an index in the message- not hint
-			
-			//shift modifications
-			int shift=0;
-			if(rows==1 && startShift>0 && message.length()>startShift) {
-				//if the mouse in right margin
-				if(mouseX > rightX - bufferWidth && message.length()>startShift+1) {
-					shift = startShift+1;
-				}else
-					shift = startShift;
-				rem = message.substring(shift);
-				sum += shift;
-				shift = 0; //need to reset to not interfere with the multi-line computations
-			}
-			if(rows>1)
-				shift = startShift;
-			
-			int underscoreWidth = fontMetrics.stringWidth(bufferChar);
-			/*The inside width is the difference of the pixel width of the box and the underscore width.
-			 *This leaves spacing for half an underscore on both sides. */
-			int insideWidth = ww - underscoreWidth;
-			
-			boolean charConsumed = false; //a character consumed on the most recent line break
-			if(rem != null && !rem.isEmpty()){
-				//it only needs to go to row (instead of the whole message) because that is the data we need
-				for(int i=-shift; i<=row; i++) {
-					//the text that fits on the currently processed row. If this isn't the row we need, the
-					//text will be reset when processing progresses to the next line.
-					String text = "";
-					int wwidth = 0; //the width in pixels of text on the line
-					
-					charConsumed = false; //resets for each line
-					while(wwidth<=insideWidth && !rem.isEmpty()) {
-						//transfer a character from rem to text
-						char nextChar = rem.charAt(0);
-						text += nextChar;
-						rem = rem.substring(1);
-						if(nextChar == '\n') //new line will force too long
-							wwidth = insideWidth+1;
-						else
-							wwidth = fontMetrics.stringWidth(text); //find the new width
-					}
-					
-					if(wwidth>insideWidth && rows>1) { //the width is too long
-						LineBreak result = LineBreak.check(getWordSplitting(), text, rem);
-						text = result.LINE;
-						rem = result.REMAINDER;
-						charConsumed = result.CHAR_CONSUMED;
-					}
-					if(i!=row)
-						sum += text.length() + (charConsumed? 1:0);
+			//the text in the box, which may be masked. We only find an index in the message- not hint
+			CharSequence shown = getShowMessage();
+			int underscoreWidth = glyphWidths.measure(bufferChar);
+			int start, end; //the range of the line clicked on
+			if(rows>1) {
+				//use the lines of the most recent render, laying them out again only if the text changed
+				boolean versioned = shown.length() == message.length();
+				layout.layout(shown, versioned? textVersion: -1, fontMetrics, layout.maxWidth, getWordSplitting());
+				int lineIndex = startShift + row;
+				if(lineIndex >= layout.getLineCount()) //below the last line
+					return message.length();
+				start = layout.getLineStart(lineIndex);
+				end = layout.getLineEnd(lineIndex);
+			}else {
+				//shift modifications
+				start = 0;
+				if(rows==1 && startShift>0 && message.length()>startShift) {
+					//if the mouse in right margin
+					if(mouseX > rightX - bufferWidth && message.length()>startShift+1)
+						start = startShift+1;
+					else
+						start = startShift;
+				}
+				/*The inside width is the difference of the pixel width of the box and the underscore width.
+				 *This leaves spacing for half an underscore on both sides. The line includes the character
+				 *which crosses the edge of the box so that it may be selected.*/
+				int insideWidth = ww - underscoreWidth;
+				int wwidth = 0;
+				end = start;
+				while(wwidth<=insideWidth && end<shown.length()) {
+					char nextChar = shown.charAt(end);
+					if(nextChar == '\n') //new line will force too long
+						wwidth = insideWidth+1;
 					else
-						line = text;
+						wwidth += glyphWidths.charWidth(shown, end);
+					end++;
 				}
 			}
-			//now we have the line
-			int i = line.length();
+			String line = shown.subSequence(start, end).toString();
 			//this line could be left aligned, center aligned, or right aligned
 			int here = getLineXOffs(line, underscoreWidth/2, leftX, ww);
 			
-			//start at the end, and shrink the string until we have nothing left
-			//i gets reused as the last j
-			
-			for(int j=i; j>-1; j--) {
-				//if it is less now, the index is one more than this
-				int newWidth = fontMetrics.stringWidth(line.substring(0, j));
-				if(here + newWidth < mouseX) {
-					int oldWidth = fontMetrics.stringWidth(line.substring(0, i));
-					//see which one is closer
-					if(mouseX < here + newWidth + (oldWidth-newWidth)/2)
-						i = j;
-					break;
+			//find the last index on the line that is left of the mouse
+			int i = 0;
+			int width = 0; //the width of the line before i
+			if(here < mouseX) {
+				int length = line.length();
+				while(i < length) {
+					int nextWidth = width + glyphWidths.charWidth(line, i);
+					if(here + nextWidth >= mouseX) {
+						//see whether the index before or after the character is closer
+						if(mouseX >= here + width + (nextWidth-width)/2)
+							i++;
+						break;
+					}
+					width = nextWidth;
+					i++;
 				}
-				i = j;
 			}
 			//find the index of the letter we have now with i
-			return i + sum;
+			return i + start;
 		}
 		//if something didn't work, like if the message is empty or nothing, then return the message length, ie the index at the end of the message
 		return message.length();
@@ -436,10 +453,10 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 			here += bufferWidth;
 			break;
 		case CENTER_ALIGNMENT:
-			here += width/2 - (fontMetrics.stringWidth(line))/2;
+			here += width/2 - (glyphWidths.measure(line))/2;
 			break;
 		case RIGHT_ALIGNMENT:
-			here += width - fontMetrics.stringWidth(line)-bufferWidth;
+			here += width - glyphWidths.measure(line)-bufferWidth;
 			break;
 		}
 		return here;
@@ -482,7 +499,7 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 			g.fillRect(x, y, w, h);			
 		}
 		if(parent != null)
-			defineClickBoundary(parent.handleOffsets(new int[] {x, x+w, x+w, x}, new int[] {y, y, y+h, y+h}, this));
+			defineClickBoundary(x, y, w, h);
 		g.setColor(enabled? textColor: textColor.brighter());
 		if (outline)
 			g.drawRect(x, y, w - 1, h - 1);
@@ -504,250 +521,130 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 			}
 		}
 		if(textResize())
-			g.setFont(new Font(font.getFontName(), font.getStyle(), getTextVertResize(font.getSize())));
+			g.setFont(FontCache.derive(font, getTextVertResize(font.getSize())));
 		else
 			g.setFont(font);
 		fontMetrics = g.getFontMetrics();
+		glyphWidths = GlyphWidths.of(fontMetrics);
 		//draw the string correctly, not drawing outside of the box and conforming to lines
 		int hheight = fontMetrics.getHeight();
-		//an array to be filled by the text to be displayed. The size of this array is the visual maximum
-		String texts [] = new String[h/hheight];
+		//the number of rows of text that can be shown in the box
+		int rows = h/hheight;
 		//the amount that the text is offset rendered in the box
-		int textOffset = fontMetrics.getAscent() + fontMetrics.getLeading() + (h-(texts.length*hheight))/2;
+		int textOffset = fontMetrics.getAscent() + fontMetrics.getLeading() + (h-(rows*hheight))/2;
 
 		boolean messageShown;
 		boolean isClicked = isClicked(); //we should only shift to the blinker if the box is selected
-		//the string that will be displayed. usually message but sometimes the hint
-		String rem;
+		//the text that will be displayed. usually message but sometimes the hint
+		CharSequence shown;
 		//message should always be not null. Even if it is empty, it should still be not null
 		if(message.length()>0 || hint==null) {
-			rem = getShowMessage();
+			shown = getShowMessage();
 			g.setColor(Color.BLACK);
 			messageShown = true;
 		}else {
-			rem = hint;
+			shown = hint;
 			g.setColor(Color.DARK_GRAY);
 			messageShown = false;
 		}
-
-		int blinkerRow = 0;
-		int blinkerX = 0;
-		int totalTextLength = rem.length();
-		//If we should set the blinker, then the set variable should be false. If we don't set the 
-		//blinker, then even though it hasn't been set, still pretend like it is.
-		boolean blinkerSet = !isClicked();
-		int underscoreWidth = fontMetrics.stringWidth(bufferChar);
-
-		if(h/hheight<1)
+		if(rows<1)
 			return;
-		texts = new String[h/hheight];
-
-		//draw the string correctly, not drawing outside of the box and conforming to lines
-		int blinkerPlace = 0;
-		boolean setClick = !selection;
-		int clickRow = 0;
-		int clickPlace = 0;
-		int shift = 0;
-		if(messageShown) { //shift only used when the message is shown
-			if(startShift > rem.length())
-				startShift = rem.length();
-			shift = startShift;
-		}
-
-		boolean finalLine = false; //in cases of newlines or overflow, we need to place an extra line
+		int totalTextLength = shown.length();
+		int underscoreWidth = glyphWidths.measure(bufferChar);
 		/*The inside width is the difference of the pixel width of the box and the underscore width.
 		 *This leaves spacing for half an underscore on both sides. */
 		int insideWidth = w - underscoreWidth;
-		//the iterator of the line we are working with
-		int i = 0;
-		//In some cases, we need to go back into the line loop after we thought that we finished
-		boolean redo;
-		do {
-			redo = false;
-			finalLine = false;
-			while(i<texts.length) { //while we haven't exceeded the number of allotted lines
-				//create the text if needed
-				if(i<texts.length && texts[i] == null) 
-					texts[i] = "";
-				
-				//check for the blinker position
-				if(!blinkerSet && rem.length()<=totalTextLength-index){
-					blinkerSet = true;
-					blinkerRow = i;
-					blinkerPlace = texts[i].length();
-					blinkerX = fontMetrics.stringWidth(texts[i]);
-				}if(!setClick && rem.length()<=totalTextLength-clickIndex){
-					setClick = true;
-					clickRow = i;
-					clickPlace = texts[i].length();
-				}
-				
-				//checked for click and blinker first (for end of line)
-				if(rem.isEmpty()) //but if rem is empty, quit out
-					break;
-				
-				//add a character onto the line
-				texts[i] += rem.charAt(0);
-				rem = rem.substring(1);
-				
-				//shift for single-line boxes
-				if(shift>0 && texts.length==1) {
-					//if the blinker has been set, the shift needs to decrease
-					if(blinkerSet && isClicked) {
-						startShift -= shift; //adjust for next time
-						shift = 0; //render normal for the rest
-					}else {
-						shift--;
-						texts[0] = texts[0].substring(1);
-						if(setClick)
-							clickPlace--;
-					}
-					continue;
-				}
-				
-				//if the line is now too long to fit in row
-				if(fontMetrics.stringWidth(texts[i])>insideWidth || texts[i].charAt(texts[i].length()-1)=='\n') {
-					if(texts.length>1) {
-						LineBreak split = LineBreak.check(getWordSplitting(), texts[i], rem);
-						texts[i] = split.LINE; //for index calculation
-						rem = split.REMAINDER;
-						
-						//if the line break yielded nothing after and this is the end, then we need to
-						//signal that there is still a line down there to access
-						if(i==texts.length-1 && rem.isEmpty())
-							finalLine = true;
-						
-						//check if the blinker or click is affected by the change
-						int splitLocation = split.LINE.length();
-						if(blinkerSet && blinkerRow == i && blinkerPlace>splitLocation)
-							blinkerSet = false;
-						if(setClick && clickRow == i && clickPlace>splitLocation)
-							setClick = false;
-						
-						//shift modifications
-						if(shift>0) {
-							if(blinkerSet && isClicked) { //if the blinker has already been placed
-								//then we should shift to the blinker's place
-								//we will only need to shift up if startShift is greater than 0
-								startShift -= shift; //adjust for next time
-								shift = 0; //render normal for the rest
-								i++;
-							}else {
-								shift--;
-								texts[i] = ""; //reset the line
-								if(setClick) //if the click position has already been set
-									clickRow--;
-							}
-						}else
-							i++;
-					}else {
-						rem = texts[i].charAt(texts[i].length()-1) + rem;
-						texts[i] = texts[i].substring(0, texts[i].length()-1);
-						i++;
-					}
+
+		//the first line of the layout which is shown in the box
+		int firstLine = 0;
+		if(rows>1) {
+			//the start shift is measured in rows
+			//only the message is versioned. Hints or invisible masks are small enough to always lay out
+			boolean versioned = messageShown && shown.length() == message.length();
+			layout.layout(shown, versioned? textVersion: -1, fontMetrics, insideWidth, getWordSplitting());
+			int lines = layout.getLineCount();
+			if(messageShown) {
+				//if the box has more room than the shifted text needs, shift up to fill it
+				if(startShift>0 && lines-startShift < rows)
+					startShift = Math.max(0, lines-rows);
+				//shift so that the blinker is shown
+				if(isClicked) {
+					int blinkerLine = layout.getLineOf(index);
+					if(blinkerLine < startShift)
+						startShift = blinkerLine;
+					else if(blinkerLine >= startShift+rows && getHasVirtualSpace())
+						startShift = blinkerLine-rows+1;
 				}
+				firstLine = startShift;
 			}
-			
-			/* 
-			 * As we have reached the end of the allotted rows, there are two distinct problems that
-			 * may have arisen during earlier rendering. It is possible that neither has occurred,
-			 * but we still need to check for both.
-			 * 
-			 * First issue: If we have not placed the blinker yet but we were supposed to. In this
-			 * occurrence, the blinker position must be later on in the message. The procedure by
-			 * which we render (going through all of the message even when startShift will make us
-			 * ignore those lines), guarantees that the blinker position could not have been earlier.
-			 * If it was, we would have found it. Therefore, the position *must* be later on in the
-			 * message.
-			 * 
-			 * Second issue: It is a very rare case, but sometimes the frame of the application is
-			 * resized, and a text box acquires more space. Instead of having empty lines at the
-			 * bottom with a start shift, the text box should try to render as much as possible.
-			 */
-			//Check for first issue: If the blinker has not been set yet but should have (!setBlinker),
-			//and also if virtual space allows us to scroll.
-			if(!blinkerSet && getHasVirtualSpace()) {
-				//The solution to the first issue is to shift all the rows up and redo the last row.
-				//Hopefully that will find the blinker. If not, we will end up here again until we do.
-				if(texts.length>1) {
-					//shift all rows up
-					int ii=1;
-					for(; ii<texts.length; ii++) {
-						texts[ii-1] = texts[ii];
-					}//delete the last row
-					texts[ii-1] = "";
-					if(setClick && selection) //if click index was altered
-						clickRow--;
-				}else {
-					//get rid of the first character
-					texts[0] = (texts[0].length() > 0)? texts[0].substring(1): "";
-					if(setClick && selection) //if click index was altered
-						clickPlace--;
+		}else {
+			//the start shift is measured in characters
+			int start = 0;
+			if(messageShown) {
+				if(startShift > totalTextLength)
+					startShift = totalTextLength;
+				if(isClicked) {
+					if(index < startShift)
+						startShift = index;
+					else if(getHasVirtualSpace()) {
+						//shift forward only as much as needed for the blinker to fit
+						int fit = LineLayout.fitBefore(shown, index, insideWidth, fontMetrics);
+						if(fit > startShift)
+							startShift = fit;
+					}
 				}
-				redo = true; //go back into the loop
-				i--; //do the last line again
-				startShift++; //save for next time
+				start = startShift;
 			}
-			//Check for the second issue: If the entire message has been processed (rem.isEmpty()),
-			//but we shifted (startShift>0) and we end up with an unprocessed line at the bottom
-			//(texts[texts.length-1]==null). It has to be *unprocessed* since sometimes returns or
-			//character overflow can put the blinker on the next line without anything to draw.
-			if(rem.isEmpty() && startShift>0 && texts.length>0 && texts[texts.length-1]==null) {
-				//if so, we have to do a complete redo, where we will move the shift up to include more
-				rem = getShowMessage();
-				blinkerSet = false;
-				setClick = !selection;
-				texts = new String[h/hheight];
-				i = 0;
-				//decrease startShift to try to capture more text in the box
-				shift = --startShift;
-				redo = true;
+			layout.layoutLine(shown, fontMetrics, start, insideWidth);
+		}
+		int lines = layout.getLineCount();
+		int lastLine = Math.min(lines, firstLine+rows); //exclusive
+
+		String texts[] = new String[rows];
+		for(int i=firstLine; i<lastLine; i++)
+			texts[i-firstLine] = layout.getLineText(i);
+		//the index of the first character not shown in the box
+		int processed = (rows>1 && lastLine<lines)? layout.getLineStart(lastLine): layout.getLineEnd(lastLine-1);
+
+		//find the blinker position
+		int blinkerRow = 0;
+		int blinkerX = 0;
+		int rowWidth = 0;
+		if(isClicked) {
+			int blinkerLine = (rows>1)? layout.getLineOf(index): 0;
+			if(blinkerLine>=firstLine && blinkerLine<lastLine && index>=layout.getLineStart(blinkerLine)
+					&& index<=layout.getLineEnd(blinkerLine)) {
+				blinkerRow = blinkerLine-firstLine;
+				blinkerX = layout.getAdvance(layout.getLineStart(blinkerLine), index);
 			}
-		}while(redo);
-		
+		}
+		if(texts[blinkerRow] != null)
+			rowWidth = glyphWidths.measure(texts[blinkerRow]);
+
 		//do some more operations on the leftover text if it is the message
 		boolean endCutOff = false;
 		if(messageShown) {
+			endCutOff = processed < totalTextLength;
 			//cut off extra if virtual space not allowed
-			if(!hasVirtualSpace && !rem.isEmpty()) {
-				String tempMessage = getMessage();
-				setMessage(tempMessage.substring(0, tempMessage.length()-rem.length()));
+			if(!hasVirtualSpace && endCutOff) {
+				//the cut off is undone with the edit which caused it
+				editHistory.extendAction();
+				setMessage(getMessage().substring(0, processed));
+				editHistory.endAction();
 				index = message.length();
 				//update the scroll bar
 				if(textScroller!=null)
 					textScroller.setBarOffs(0);
 			}
-			endCutOff = !rem.isEmpty(); //set this before the scroll bar calculation modifies it
 			
 			//update the scroll bar
 			if(hasVirtualSpace && textScroller!=null) {
-				if(texts.length==1) { //one lined text box
-					int textLength = 0;
-					if(texts[0]!=null)
-						textLength = texts[0].length();
-					textScroller.setOffsets(totalTextLength, textLength, startShift);
-				}else {
-					//calculate the total number of lines
-					int extraLines = finalLine? 1:0;
-					String extraText = "";
-					while(!rem.isEmpty()) {
-						extraText += rem.charAt(0);
-						if(fontMetrics.stringWidth(extraText)>insideWidth) {//the line is now too long
-							extraLines++;
-							extraText = ""+rem.charAt(0); //start the next line
-						}else if(extraText.charAt(extraText.length()-1)=='\n') {
-							extraLines++;
-							extraText = ""; //reset the text
-							
-							if(rem.length()==1) //blinker at the very end
-								extraLines++;
-						}
-						rem = rem.substring(1); //remove the used character
-					}if(!extraText.isEmpty())
-						extraLines++;
-					//total lines is the lines shown (texts.length), plus the lines skipped, plus lines left over
-					textScroller.setOffsets(startShift+extraLines+texts.length,
-								 texts.length, //bar offs is the number of texts shown
+				if(rows==1) //one lined text box
+					textScroller.setOffsets(totalTextLength, processed-layout.getLineStart(0), startShift);
+				else {
+					//total lines is the lines skipped, plus the lines shown, plus lines left over
+					textScroller.setOffsets(Math.max(lines, startShift+rows),
+								 rows, //bar offs is the number of texts shown
 								 startShift); //offset for the bar is the startShift
 				}
 			}
@@ -756,16 +653,13 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 		drawTextLines(g, texts, x, y, w, h, underscoreWidth, textOffset);
 
 		//show the blinker if the blinker has been placed and should be shown
-		int rowWidth = 0;
-		if(texts[blinkerRow] != null)
-			rowWidth = fontMetrics.stringWidth(texts[blinkerRow]);
 		drawBlinker(g, x, y, w, h, rowWidth, blinkerX, blinkerRow, underscoreWidth, textOffset);
 		
 		//show text cut off mark
 		if(cutOffMark && messageShown) {
 			int decrease = hheight - fontMetrics.getDescent();
 			if(endCutOff) 
-				g.drawLine(x+w-2, y + hheight*(texts.length-1) + textOffset -decrease, x+w-2, (int)(y + hheight*texts.length + textOffset -decrease));
+				g.drawLine(x+w-2, y + hheight*(rows-1) + textOffset -decrease, x+w-2, (int)(y + hheight*rows + textOffset -decrease));
 			if(startShift>0)
 				g.drawLine(x+1, y + textOffset -decrease, x+1, y + hheight + textOffset -decrease);
 		}
@@ -774,61 +668,25 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 		if(!selection)
 			return;
 
-		//click positions aren't necessarily possible because of shifting. Fix to valid values
-		if(clickRow<0) { //it is less than shown row, but set place, so minimum
-			clickRow = 0;
-			clickPlace = 0;
-		}else if(clickPlace<0)
-			clickPlace = 0;
-		else if(!setClick) { //it hasn't been set, so maximum
-			clickRow = texts.length-1;
-			if(texts[clickRow] != null)
-				clickPlace = (texts[clickRow] != null)? texts[clickRow].length(): 0;
-		}
-		
-		/* A start point and end point needs to be defined for the selection. Although clickIndex is where the click began, backwards dragging is
-		 * supported, which requires that we ascertain which is actually first. In rows[] and places[], 0 is the start point, and 1 is the end.
-		 */
-		int rows[] = {0,0};
-		int places[] = {0,0};
-		if(clickIndex < index){
-			rows[0] = clickRow;
-			places[0] = clickPlace;
-			rows[1] = blinkerRow;
-			places[1] = blinkerPlace;
-		}else{
-			rows[0] = blinkerRow;
-			places[0] = blinkerPlace;
-			rows[1] = clickRow;
-			places[1] = clickPlace;
-		}
-
-		//for each line between the top of the selection and the bottom
-		for(int ii=rows[0]; ii<=rows[1]; ii++) {
+		//the selection is between the click index and the blinker index, whichever is first
+		int selStart = Math.min(clickIndex, index);
+		int selEnd = Math.max(clickIndex, index);
+		int centerY = (h - (rows*hheight))/2;
+		for(int i=firstLine; i<lastLine; i++) {
+			int lineStart = layout.getLineStart(i);
 			//the start and end indices for the selection in this row
-			int start = 0;
-			int end = texts[ii].length();
-			//determine offset, selection width, etc by if this row is the start of the selection
-			//the middle, or the end.
-			if(ii == rows[0]) { //this is first row of selection
-				//set start to be after the end of text preceding the selection
-				start = places[0];
-			}if(ii == rows[1]) { //this is the last row of selection
-				//set the end to be after the selection's end
-				end = places[1];
-			}//all middle rows will have everything selected
-
-			//define the selection width so the rectangles can be drawn
-			int selWidth = fontMetrics.stringWidth(texts[ii].substring(start,end));
+			int start = Math.max(selStart, lineStart);
+			int end = Math.min(selEnd, layout.getLineEnd(i));
+			if(start >= end)
+				continue;
+			int row = i-firstLine;
 
 			g.setColor(Color.BLACK);
-			int xOffs = getLineXOffs(texts[ii], underscoreWidth/2, x, w);
+			int xOffs = getLineXOffs(texts[row], underscoreWidth/2, x, w) + layout.getAdvance(lineStart, start);
 			//draw the rectangles and selection texts
-			int centerY = (h - (texts.length*hheight))/2;
-			g.fillRect(xOffs + fontMetrics.stringWidth(texts[ii].substring(0,start)), y + hheight*ii + centerY, selWidth, hheight);
+			g.fillRect(xOffs, y + hheight*row + centerY, layout.getAdvance(start, end), hheight);
 			g.setColor(Color.WHITE);
-			g.drawString(texts[ii].substring(start,end), xOffs + fontMetrics.stringWidth(texts[ii].substring(0,start)),
-					y + hheight*ii + textOffset);
+			g.drawString(shown.subSequence(start, end).toString(), xOffs, y + hheight*row + textOffset);
 		}
 	}
 	/**
@@ -851,7 +709,10 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 				break;
 			
 			int xx = getLineXOffs(texts[ii], underscoreWidth/2, x, w);
-			g.drawString(texts[ii], xx, y + hheight*ii + textOffset);
+			if(glyphRuns != null)
+				glyphRuns.drawString(g, ii, texts[ii], xx, y + hheight*ii + textOffset);
+			else
+				g.drawString(texts[ii], xx, y + hheight*ii + textOffset);
 		}
 	}
 	/**
@@ -902,85 +763,149 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	}
 
 	/**
-	 * Returns the message displayed on this text box.
-	 * @return {@link #message}
+	 * Returns the message displayed on this text box. The string is only created when the message has
+	 * changed since the last call.
+	 * @return the contents of {@link #message}
 	 */
 	public String getMessage() {
-		return message;
+		return message.toString();
 	}
 	
 	/**
-	 * Returns the {@link #message} after applying any {@link #charMask}.
+	 * Returns the {@link #message} after applying any {@link #charMask}. If there is no mask, the
+	 * message buffer itself is returned, so the result should not be kept past further edits. If there
+	 * is a mask, a {@link MaskedText} view of the message is returned, so the masked text is never
+	 * copied in full.
 	 * @return the text that should be shown for the message
 	 */
-	protected String getShowMessage() {
+	protected CharSequence getShowMessage() {
 		if(charMask == null)
-			return getMessage();
-		else {
-			String mes = "";
-			if(charMask >= ' ') { //if the char mask is something that actually can be printed
-				int length = getMessage().length();
-				for(int i=0; i<length; i++)
-					mes += charMask;
-			}
-			return mes;
-		}
+			return message;
+		if(charMask < ' ') //if the char mask is something that can't actually be printed
+			return "";
+		if(maskedMessage == null || maskedMessage.getMask() != charMask)
+			maskedMessage = new MaskedText(message, charMask);
+		return maskedMessage;
 	}
 	
 	/**
 	 * Clears the {@link #message}.
 	 */
 	public void clearMessage() {
+		editHistory.beginAction();
 		if (format != null) {
-			this.message = format.emptyText();
+			message.setText(format.emptyText());
 			if (charMax>-1 && message.length()>charMax)
-				message = message.substring(0, charMax);
+				message.delete(charMax, message.length());
 		}else
-			this.message = "";
+			message.setText("");
+		editHistory.endAction();
+		textChanged();
+	}
+	
+	/**
+	 * Marks that the text shown by this box may have changed, so that the cached {@link #layout} is
+	 * computed again in the next render. Subclasses which modify {@link #message} directly should
+	 * call this or {@link #textChanged(int, int, int)} afterwards.
+	 */
+	protected void textChanged() {
+		textVersion++;
+		layout.invalidate();
+	}
+	/**
+	 * Marks that the characters of {@link #message} from <code>start</code> to
+	 * <code>start+removed</code> were replaced by <code>inserted</code> characters. In the next
+	 * render, only the lines of the {@link #layout} around the change are computed again.
+	 * @param start the index of the first character changed
+	 * @param removed the number of characters removed, counted in the message before the change
+	 * @param inserted the number of characters inserted in their place
+	 */
+	protected void textChanged(int start, int removed, int inserted) {
+		textVersion++;
+		layout.edited(start, removed, inserted);
 	}
 	
 	/**
 	 * Parses the new text and combines before + new + after, which is set as {@link #message}
-	 * after applying length restrictions (if any).
+	 * after applying length restrictions (if any). The change is reported through
+	 * {@link #textChanged(int, int, int)} as a replacement of after.
 	 * @param before the before text, which already existed in the message (does not need to be
 	 * checked for validity) and is set before parsing out middle (and re-parsing end).
 	 * @param newText the new segment of text to be included
 	 * @param after text in the message after newText, if any (if not, use "")
 	 * @return the length of newText after parsing and constraints (may be used to shift index)
+	 * @see #insertText(int, int, String)
 	 */
 	protected int parseText(String before, String newText, String after) {
-		int newKept, afterKept;
-		if (this.format != null) {
-			this.message = before; // pre-existing, does not need to be checked for validity by format
-			String toCheck = newText + after;
+		message.setText(before);
+		message.append(after);
+		return insertText(before.length(), before.length(), newText);
+	}
+	
+	/**
+	 * Replaces the characters of {@link #message} from start to end with the new text, after the new
+	 * text has been parsed by the {@link #format} (if any) and length restrictions (if any) have been
+	 * applied. Only the new text is checked unless the format {@link TextFormat#rechecksTrailingText()},
+	 * in which case the characters after the new text are parsed again, since their validity may depend
+	 * on the text before them. Characters which would be cut off by {@link #charMax} are not checked.
+	 * The change is reported through {@link #textChanged(int, int, int)}.
+	 * @param start the index of the first character to replace
+	 * @param end the index after the last character to replace
+	 * @param newText the new segment of text to be included
+	 * @return the length of newText after parsing and constraints (may be used to shift index)
+	 */
+	protected int insertText(int start, int end, String newText) {
+		int newKept;
+		int afterLength = message.length() - end;
+		//the length the message may grow to. Characters past it would only be cut off
+		int limit = (charMax > -1)? charMax: Integer.MAX_VALUE;
+		if (format != null && format.rechecksTrailingText()) {
+			String after = message.substring(end);
+			message.delete(start, message.length());
 			newKept = 0;
-			afterKept = 0;
-			for (int i = 0; i < toCheck.length(); i++) {
-				char c = toCheck.charAt(i);
+			//each character is appended before the next is checked, as the format may depend on it
+			for (int i = 0; i < newText.length() && message.length() < limit; i++) {
+				char c = newText.charAt(i);
 				if (format.isValidChar(c)) {
-					if (i < newText.length())
-						newKept++;
-					else
-						afterKept++;
-					this.message += c;
+					newKept++;
+					message.append(c);
 				}
 			}
+			for (int i = 0; i < afterLength && message.length() < limit; i++) {
+				char c = after.charAt(i);
+				if (format.isValidChar(c))
+					message.append(c);
+			}
 		}else {
-			StringBuilder buf = new StringBuilder(before);
-			buf.append(newText);
-			buf.append(after);
-			message = buf.toString();
-			newKept = newText.length();
-			afterKept = after.length();
+			//the number of new characters which fit before the limit
+			int room = Math.max(0, limit - start);
+			if (format != null) {
+				StringBuilder valid = new StringBuilder(Math.min(newText.length(), room));
+				for (int i = 0; i < newText.length() && valid.length() < room; i++) {
+					char c = newText.charAt(i);
+					if (format.isValidChar(c))
+						valid.append(c);
+				}
+				message.replace(start, end, valid);
+				newKept = valid.length();
+			}else {
+				newKept = Math.min(newText.length(), room);
+				message.replace(start, end, newText, 0, newKept);
+			}
 		}
 		
-		if (charMax>-1 && message.length()>charMax) {
-			int diff = message.length() - charMax;
-			afterKept -= diff;
-			if (afterKept < 0)
-				newKept += afterKept;
-			message = message.substring(0, charMax);
-		}
+		if (message.length() > limit)
+			message.delete(limit, message.length());
+		//if the limit cut into the text before, the new text is cut back to the limit
+		newKept = Math.min(newKept, limit - start);
+		//if all of after was kept, it is unchanged since characters are only ever filtered out
+		int newLength = message.length() - start;
+		if (newLength < 0) //the limit cut into before
+			textChanged();
+		else if (newLength - newKept == afterLength)
+			textChanged(start, end - start, newKept);
+		else
+			textChanged(start, end - start + afterLength, newLength);
 		return newKept;
 	}
 	
@@ -994,7 +919,11 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	public void setMessage(String string) {
 		if(string == null)
 			string = "";
-		parseText("", string, "");
+		editHistory.beginAction();
+		message.setText("");
+		insertText(0, 0, string);
+		editHistory.endAction();
+		textChanged(); //the old message was replaced entirely
 		
 		if (index > message.length())
 			index = message.length();
@@ -1005,6 +934,80 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 		}
 	}
 	
+	/**
+	 * Replaces {@link #message} with the contents of the file, decoded as UTF-8.
+	 * @param path the file to load
+	 * @throws IOException if the file cannot be read
+	 * @see #load(Path, Charset)
+	 */
+	public void load(Path path) throws IOException {
+		load(path, StandardCharsets.UTF_8);
+	}
+	/**
+	 * Replaces {@link #message} with the contents of the file. The file is decoded in chunks directly
+	 * into the message, so no string of the whole file is created unless this box has a
+	 * {@link #format}, which parses the text as {@link #setMessage(String)} would. The text is cut to
+	 * {@link #charMax} if it has been set. Malformed input is replaced rather than rejected. Lines
+	 * ending in "\r\n" or "\r" are read as ending in "\n", the only new line this box shows, so a
+	 * file saved by {@link #save(Path, Charset)} afterwards ends its lines in "\n".
+	 * <p>
+	 * Since the file is a new document, the {@link #editHistory} is cleared and the box is shown
+	 * from its beginning once the file is open. If the file cannot be opened, the box is left as it
+	 * was. If reading fails after that, the message holds whatever was read before the failure.
+	 * @param path the file to load
+	 * @param charset the character set the file is encoded in
+	 * @throws IOException if the file cannot be read
+	 * @see #save(Path, Charset)
+	 */
+	public void load(Path path, Charset charset) throws IOException {
+		try(Reader in = new LineFeedReader(new InputStreamReader(Files.newInputStream(path), charset))) {
+			//a character is never longer than a byte in UTF-8, so the size of the file is enough room
+			long size = Files.size(path);
+			editHistory.clear();
+			//the old message and the file are not kept by the history, so they need not be copied to it
+			message.setHistory(null);
+			try {
+				if(format != null) {
+					message.setText("");
+					insertText(0, 0, new TextBuffer().read(in, size).toString());
+				}else {
+					message.setText("");
+					message.read(in, size);
+					if(charMax>-1 && message.length()>charMax)
+						message.delete(charMax, message.length());
+				}
+			}finally {
+				message.setHistory(editHistory);
+				textChanged();
+				index = 0;
+				selection = false;
+				startShift = 0; //the scroll bar follows the start shift in the next render
+			}
+		}
+	}
+	/**
+	 * Saves {@link #message} to the file, encoded as UTF-8.
+	 * @param path the file to save to. It is created if it does not exist, and replaced if it does.
+	 * @throws IOException if the file cannot be written
+	 * @see #save(Path, Charset)
+	 */
+	public void save(Path path) throws IOException {
+		save(path, StandardCharsets.UTF_8);
+	}
+	/**
+	 * Saves {@link #message} to the file. The message is encoded as it is written from the text
+	 * buffer, so no string of the whole message is created.
+	 * @param path the file to save to. It is created if it does not exist, and replaced if it does.
+	 * @param charset the character set to encode the file in
+	 * @throws IOException if the file cannot be written
+	 * @see #load(Path, Charset)
+	 */
+	public void save(Path path, Charset charset) throws IOException {
+		try(Writer out = Files.newBufferedWriter(path, charset)) {
+			message.write(out, 0, message.length());
+		}
+	}
+	
 	/**
 	 * Deletes the selection, then appends the given string into {@link #message}. If the append makes 
 	 * {@link #message} longer than {@link #charMax} if {@link #charMax} has been set, the tail-end of
@@ -1024,14 +1027,24 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 			}
 		}
 		
-		//deletes the selection if there is one
-		if(selection)
-			deleteSelection(null);
-		
-		String after = "";
-		if (index < message.length())
-			after = message.substring(index);
-		shiftIndex(parseText(message.substring(0, index), string, after));
+		//a single character typed joins the typing before it, though each new line is undone alone
+		if(string.length() == 1 && !selection) {
+			if(string.charAt(0) == '\n')
+				editHistory.breakTyping();
+			editHistory.beginTyping();
+		}else
+			editHistory.beginAction();
+		try {
+			//deletes the selection if there is one
+			if(selection)
+				deleteSelection(null);
+			
+			if (index > message.length())
+				index = message.length();
+			shiftIndex(insertText(index, index, string));
+		}finally {
+			editHistory.endAction();
+		}
 	}
 	/**
 	 * Deletes the selection then removes characters from {@link #message} starting at {@link #index}.
@@ -1047,6 +1060,31 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 		if(!leftDelete)
 			chars *= -1;
 		
+		if(chars == 1 && !selection)
+			editHistory.beginTyping();
+		else
+			editHistory.beginAction();
+		try {
+			removeChars(chars, leftDelete);
+		}finally {
+			editHistory.endAction();
+		}
+		
+		if (message.isEmpty()) {
+			startShift = 0;
+			if (textScroller != null) //the scroll bar should be unset
+				textScroller.setTotalOffs(0);
+		}
+		
+		refreshBlinker();
+	}
+	/**
+	 * Deletes the selection then removes characters from {@link #message} starting at {@link #index},
+	 * as requested by {@link #removeMessage(int)}.
+	 * @param chars the number of characters to remove, including the selection if there is one
+	 * @param leftDelete whether the characters are removed from the left of the index (backspace)
+	 */
+	private void removeChars(int chars, boolean leftDelete) {
 		//deletes the selection if there is one
 		if(selection) {
 			deleteSelection(null);
@@ -1076,25 +1114,23 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 			}
 			
 			if (left != right) {
-				StringBuilder temp = new StringBuilder();
-				if (left > 0)
-					temp.append(message.substring(0, left));
-				if (right < message.length())
-					temp.append(message.substring(right));
-				if (format != null)
-					message = format.deleteAction(temp.toString());
-				else
-					message = temp.toString();
+				if (format != null) {
+					//the format is given the whole text, so it must be created
+					String deleted = message.substring(0, left) + message.substring(right);
+					String result = format.deleteAction(deleted);
+					if (result == deleted) {
+						message.delete(left, right);
+						textChanged(left, right - left, 0);
+					}else { //the format modified the text
+						message.setText(result);
+						textChanged();
+					}
+				}else {
+					message.delete(left, right);
+					textChanged(left, right - left, 0);
+				}
 			}
 		}
-		
-		if (message.isEmpty()) {
-			startShift = 0;
-			if (textScroller != null) //the scroll bar should be unset
-				textScroller.setTotalOffs(0);
-		}
-		
-		refreshBlinker();
 	}
 	/**
 	 * @param chars the number of characters to delete
@@ -1108,8 +1144,9 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	
 	/**
 	 * Deletes the selection for the text box. Assumes that there is a selection to delete. Checks whether
-	 * the text box is enabled before the action is performed. Uses {@link #setMessage(String)}, so the
-	 * text must follow text box constraints of length and filters.
+	 * the text box is enabled before the action is performed. Uses {@link #insertText(int, int, String)},
+	 * so the text must follow text box constraints of length and filters. Afterwards, the {@link #index}
+	 * is placed after any replacement text.
 	 * @param replace the text to replace the deleted selection with. Keep null for a normal deletion.
 	 */
 	protected void deleteSelection(String replace) {
@@ -1124,29 +1161,19 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 			start = index;
 			end = clickIndex;
 		}
-		String newMessage = "";
-		if(start>0)
-			newMessage += message.substring(0, start);
-		if(replace != null) {
-			newMessage += replace;
-			//now we need to find the new index:
-			//we don't know if any of the pasted text will get filtered out, so we set the message,
-			//and that is our index. Then we can add in the ending (if any)
-			
-			String ending = null;
-			if(end<message.length())
-				ending= message.substring(end);
-			setMessage(newMessage);
-			
-			if(ending != null)
-				setMessage(newMessage + ending);
-		}else {
-			//if we are just doing a simple delete, the index is easy to find:
-			if(end<message.length())
-				newMessage += message.substring(end);
-			//set the new index where the deletion starts
-			index = start;
-			setMessage(newMessage);
+		if(end > message.length())
+			end = message.length();
+		//the removal of the selection is its own change, then the replacement is inserted
+		//both are undone together
+		editHistory.beginAction();
+		message.delete(start, end);
+		textChanged(start, end-start, 0);
+		index = start + insertText(start, start, (replace != null)? replace: "");
+		editHistory.endAction();
+		if (message.isEmpty()) {
+			startShift = 0;
+			if(textScroller != null) //the scroll bar should be unset
+				textScroller.setTotalOffs(0);
 		}
 		//also, there is no more selection since we just deleted it
 		selection = false;
@@ -1195,6 +1222,8 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 			index = message.length();
 		
 		if(clicked){
+			//typing after the blinker was placed is not undone with the typing before
+			editHistory.breakTyping();
 			timeLast = System.currentTimeMillis();
 			showBlinker = true;
 			mouseClickXY[0] = mouseX;
@@ -1267,6 +1296,43 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 		index = message.length();
 	}
 	
+	/**
+	 * Undoes the most recent edit of {@link #message} kept in the {@link #editHistory}, and places the
+	 * {@link #index} after the restored text.
+	 */
+	@Override
+	public void undo() {
+		if(enabled && isHotKeyEnabled())
+			historyChanged(editHistory.undo(message));
+	}
+	/**
+	 * Redoes the edit of {@link #message} undone most recently, and places the {@link #index} after
+	 * the text it inserted.
+	 */
+	@Override
+	public void redo() {
+		if(enabled && isHotKeyEnabled())
+			historyChanged(editHistory.redo(message));
+	}
+	/**
+	 * Updates the box after {@link #message} was changed by the {@link #editHistory}.
+	 * @param change the change made, as given by {@link EditHistory#undo(TextBuffer)}, or null if
+	 * nothing was changed
+	 */
+	private void historyChanged(int[] change) {
+		if(change == null)
+			return;
+		textChanged(change[0], change[1], change[2]);
+		index = change[0] + change[2];
+		selection = false;
+		if (message.isEmpty()) {
+			startShift = 0;
+			if(textScroller != null) //the scroll bar should be unset
+				textScroller.setTotalOffs(0);
+		}
+		refreshBlinker();
+	}
+	
 	/**
 	 * Shifts the index of the blinker, the vertical line at the position where you type, by the amount specified.
 	 * @param delta the amount to shift the blinker index by. This will effectively make {@link #index} += delta.
@@ -1362,7 +1428,7 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	}
 	
 	/**
-	 * Sets whether the hotkey commands, copy, cut, paste, should work on this text box.
+	 * Sets whether the hotkey commands, copy, cut, paste, undo, redo, should work on this text box.
 	 * @param hotkeys {@link #hotkeyEnabled}
 	 * @return this
 	 */
@@ -1497,6 +1563,26 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	public boolean getWordSplitting() {
 		return wordSplitting;
 	}
+
+	/**
+	 * Sets the strategy deciding where lines of this text box may be broken, such as a
+	 * {@link UnicodeBreakStrategy} for text in languages which do not separate words with spaces.
+	 * @param breakStrategy the strategy, or null to break lines by the rules of {@link LineBreak}
+	 * @return this
+	 * @see LineLayout#setBreakStrategy(BreakStrategy)
+	 */
+	public TextBox setBreakStrategy(BreakStrategy breakStrategy) {
+		layout.setBreakStrategy(breakStrategy);
+		textChanged();
+		return this;
+	}
+	/**
+	 * @return the strategy deciding where lines of this text box may be broken, or null if lines are
+	 * broken by the rules of {@link LineBreak}
+	 */
+	public BreakStrategy getBreakStrategy() {
+		return layout.getBreakStrategy();
+	}
 	
 	@Override
 	public ScrollBar getWidthScrollBar() {
@@ -1540,6 +1626,25 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	public boolean getClickSelectsAll() {
 		return clickSelectsAll;
 	}
+
+	/**
+	 * Sets whether the shaped glyphs of each row of text are kept between renders. This makes
+	 * drawing faster for boxes whose text seldom changes, such as a {@link StaticTextBox}, at the
+	 * cost of keeping the glyphs in memory.
+	 * @param cache whether to keep the glyphs in {@link #glyphRuns}
+	 * @return this
+	 */
+	public TextBox setGlyphCaching(boolean cache) {
+		glyphRuns = cache? new GlyphRuns(): null;
+		return this;
+	}
+	/**
+	 * Returns whether the shaped glyphs of each row of text are kept between renders.
+	 * @return whether {@link #glyphRuns} is set
+	 */
+	public boolean getGlyphCaching() {
+		return glyphRuns != null;
+	}
 	
 	@Override
 	public int[][] getActiveScrollCoordinates() {
@@ -1555,6 +1660,82 @@ public class TextBox extends Clickable implements DraggableComponent, HotKeyText
 	 */
 	public TextBox setCharMask(Character charMask) {
 		this.charMask = charMask;
+		textChanged();
 		return this;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Returns the history of the edits made to the message, which may be used to undo and redo them
+	 * or to forget them, such as after a new document is loaded into the box.
+	 * @return {@link #editHistory}
+	 */
+	public EditHistory getEditHistory() {
+		return editHistory;
+	}
+	/**
+	 * Sets the most memory that the edits kept for undoing may take. The oldest edits are forgotten
+	 * when the limit is reached. Defaults to {@link EditHistory#DEFAULT_MAX_BYTES}.
+	 * @param maxBytes the limit in bytes. If 0, edits are not kept and cannot be undone.
+	 * @return this
+	 */
+	public TextBox setUndoLimit(long maxBytes) {
+		editHistory.setMaxBytes(maxBytes);
+		return this;
+	}
+
+	/**
+	 * Reads the characters of another reader with every "\r\n" and "\r" replaced by "\n", as
+	 * {@link TextBox#load(Path, Charset)} expects.
+	 */
+	private static class LineFeedReader extends FilterReader {
+		/**Whether the last character read was '\r', so that a '\n' following it is skipped.*/
+		private boolean afterReturn = false;
+
+		private LineFeedReader(Reader in) {
+			super(in);
+		}
+
+		@Override
+		public int read(char[] chars, int offset, int length) throws IOException {
+			int read;
+			do { //a chunk holding only a skipped '\n' must not look like the end of the reader
+				read = in.read(chars, offset, length);
+				if(read <= 0)
+					return read;
+				int kept = offset;
+				for(int i=offset; i<offset+read; i++) {
+					char c = chars[i];
+					if(c == '\n' && afterReturn) {
+						afterReturn = false;
+						continue;
+					}
+					afterReturn = c == '\r';
+					chars[kept++] = afterReturn? '\n': c;
+				}
+				read = kept - offset;
+			}while(read == 0);
+			return read;
+		}
+		@Override
+		public int read() throws IOException {
+			char[] c = new char[1];
+			return (read(c, 0, 1) < 0)? -1: c[0];
+		}
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = 0;
+			char[] chars = new char[(int)Math.min(Math.max(n, 0), 8192)];
+			while(skipped < n) {
+				int read = read(chars, 0, (int)Math.min(n - skipped, chars.length));
+				if(read < 0)
+					break;
+				skipped += read;
+			}
+			return skipped;
+		}
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
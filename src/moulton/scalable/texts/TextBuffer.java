@@ -0,0 +1,360 @@
+package moulton.scalable.texts;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * The Text Buffer class holds editable text as a gap buffer. The characters are saved in a single
+ * array with a gap of unused space at the place of the most recent edit. Insertions and deletions
+ * at the gap only need to fill or widen the gap, and moving the gap only copies the characters
+ * between its old and new places. Therefore, a series of edits near each other, such as typing,
+ * costs time in proportion to the characters typed rather than the length of the text.
+ * <p>
+ * The buffer is a {@link CharSequence}, so it may be read directly by classes such as
+ * {@link LineLayout} without creating a string of its contents. {@link #toString()} creates the
+ * string only when requested, and keeps it until the next edit. Likewise, large texts may be read
+ * and written with {@link #read(Reader, long)} and {@link #write(Writer, int, int)}, which copy
+ * characters directly between the stream and the buffer.
+ * @author Matthew Moulton
+ */
+public class TextBuffer implements CharSequence {
+	/**The characters of the text and the gap between them.*/
+	protected char[] buffer;
+	/**The index in {@link #buffer} where the gap begins, which is also the index in the text of the
+	 * first character after the gap.*/
+	protected int gapStart = 0;
+	/**The index in {@link #buffer} of the first character after the gap.*/
+	protected int gapEnd;
+	/**The contents of the buffer as a string, or null if it has not been created since the last edit.
+	 * @see #toString()*/
+	private String string = null;
+	/**The history which is told of each edit before it is made, or null if edits are not kept.
+	 * @see #setHistory(EditHistory)*/
+	protected EditHistory history = null;
+
+	/**
+	 * Creates an empty text buffer.
+	 */
+	public TextBuffer() {
+		this("");
+	}
+	/**
+	 * Creates a text buffer holding the given text.
+	 * @param text the initial contents of the buffer
+	 */
+	public TextBuffer(CharSequence text) {
+		buffer = new char[Math.max(16, text.length() + 16)];
+		gapEnd = buffer.length;
+		insert(0, text);
+	}
+
+	@Override
+	public int length() {
+		return buffer.length - (gapEnd - gapStart);
+	}
+
+	/**
+	 * Returns whether the buffer holds no characters.
+	 * @return whether {@link #length()} is 0
+	 */
+	public boolean isEmpty() {
+		return gapStart == 0 && gapEnd == buffer.length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if(index < 0 || index >= length())
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+		if(index < gapStart)
+			return buffer[index];
+		return buffer[index + gapEnd - gapStart];
+	}
+
+	/**
+	 * Returns the characters from start to end as a new string.
+	 */
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return substring(start, end);
+	}
+	/**
+	 * Returns the characters from start to the end of the text as a new string.
+	 * @param start the index of the first character (inclusive)
+	 * @return the characters in the range
+	 */
+	public String substring(int start) {
+		return substring(start, length());
+	}
+	/**
+	 * Returns the characters from start to end as a new string.
+	 * @param start the index of the first character (inclusive)
+	 * @param end the index after the last character (exclusive)
+	 * @return the characters in the range
+	 */
+	public String substring(int start, int end) {
+		checkRange(start, end);
+		if(end <= gapStart)
+			return new String(buffer, start, end - start);
+		int gap = gapEnd - gapStart;
+		if(start >= gapStart)
+			return new String(buffer, start + gap, end - start);
+		char[] chars = new char[end - start];
+		getChars(start, end, chars, 0);
+		return new String(chars);
+	}
+
+	/**
+	 * Copies the characters from start to end into the destination array.
+	 * @param start the index of the first character to copy (inclusive)
+	 * @param end the index after the last character to copy (exclusive)
+	 * @param dest the array to copy into
+	 * @param destStart the index in dest to copy the first character to
+	 */
+	public void getChars(int start, int end, char[] dest, int destStart) {
+		checkRange(start, end);
+		int gap = gapEnd - gapStart;
+		if(start < gapStart) {
+			int before = Math.min(end, gapStart) - start;
+			System.arraycopy(buffer, start, dest, destStart, before);
+			destStart += before;
+			start += before;
+		}
+		if(start < end)
+			System.arraycopy(buffer, start + gap, dest, destStart, end - start);
+	}
+
+	/**
+	 * Inserts the characters from start to end into the builder, copying them directly from the
+	 * buffer without creating a string of them.
+	 * @param start the index of the first character to copy (inclusive)
+	 * @param end the index after the last character to copy (exclusive)
+	 * @param dest the builder to insert into
+	 * @param destIndex the index in dest to insert the first character at
+	 */
+	public void getChars(int start, int end, StringBuilder dest, int destIndex) {
+		checkRange(start, end);
+		int gap = gapEnd - gapStart;
+		if(start < gapStart) {
+			int before = Math.min(end, gapStart) - start;
+			dest.insert(destIndex, buffer, start, before);
+			destIndex += before;
+			start += before;
+		}
+		if(start < end)
+			dest.insert(destIndex, buffer, start + gap, end - start);
+	}
+
+	/**
+	 * Inserts the text at the given index.
+	 * @param index the index in this buffer where the first character of text should be placed
+	 * @param text the text to insert
+	 * @return this
+	 */
+	public TextBuffer insert(int index, CharSequence text) {
+		return replace(index, index, text);
+	}
+	/**
+	 * Appends the text to the end of the buffer.
+	 * @param text the text to append
+	 * @return this
+	 */
+	public TextBuffer append(CharSequence text) {
+		return replace(length(), length(), text);
+	}
+	/**
+	 * Appends the character to the end of the buffer.
+	 * @param c the character to append
+	 * @return this
+	 */
+	public TextBuffer append(char c) {
+		if(history != null)
+			history.record(this, length(), length(), String.valueOf(c), 0, 1);
+		moveGap(length());
+		ensureGap(1);
+		buffer[gapStart++] = c;
+		string = null;
+		return this;
+	}
+	/**
+	 * Removes the characters from start to end.
+	 * @param start the index of the first character to remove (inclusive)
+	 * @param end the index after the last character to remove (exclusive)
+	 * @return this
+	 */
+	public TextBuffer delete(int start, int end) {
+		return replace(start, end, "");
+	}
+	/**
+	 * Replaces all of the characters in this buffer with the text.
+	 * @param text the new contents of the buffer
+	 * @return this
+	 */
+	public TextBuffer setText(CharSequence text) {
+		return replace(0, length(), text);
+	}
+	/**
+	 * Replaces the characters from start to end with the text. The gap is moved to end, the
+	 * characters are removed by widening the gap, and the text is copied into the gap.
+	 * @param start the index of the first character to replace (inclusive)
+	 * @param end the index after the last character to replace (exclusive)
+	 * @param text the text to replace the range with
+	 * @return this
+	 */
+	public TextBuffer replace(int start, int end, CharSequence text) {
+		return replace(start, end, text, 0, text.length());
+	}
+	/**
+	 * Replaces the characters from start to end with the characters of the text from textStart to
+	 * textEnd, without creating a string of that part of the text.
+	 * @param start the index of the first character to replace (inclusive)
+	 * @param end the index after the last character to replace (exclusive)
+	 * @param text the text holding the replacement
+	 * @param textStart the index of the first character of text to copy (inclusive)
+	 * @param textEnd the index after the last character of text to copy (exclusive)
+	 * @return this
+	 * @see #replace(int, int, CharSequence)
+	 */
+	public TextBuffer replace(int start, int end, CharSequence text, int textStart, int textEnd) {
+		checkRange(start, end);
+		if(textStart < 0 || textEnd > text.length() || textStart > textEnd)
+			throw new IndexOutOfBoundsException("start " + textStart + ", end " + textEnd + ", length " + text.length());
+		int length = textEnd - textStart;
+		if(start == end && length == 0)
+			return this;
+		if(history != null)
+			history.record(this, start, end, text, textStart, textEnd);
+		moveGap(end);
+		gapStart = start;
+		ensureGap(length);
+		if(text instanceof String)
+			((String)text).getChars(textStart, textEnd, buffer, gapStart);
+		else if(text instanceof StringBuilder)
+			((StringBuilder)text).getChars(textStart, textEnd, buffer, gapStart);
+		else {
+			for(int i=0; i<length; i++)
+				buffer[gapStart + i] = text.charAt(textStart + i);
+		}
+		gapStart += length;
+		string = null;
+		return this;
+	}
+
+	/**
+	 * Appends all of the characters of the reader to the end of the buffer. The characters are read
+	 * directly into the gap, so no string of the text read is created. Since the text read is
+	 * usually a new document rather than an edit, it is not given to the {@link #history}, which is
+	 * cleared instead.
+	 * @param in the reader to read from. It is read until its end, but not closed.
+	 * @param expected the number of characters expected, such as the size of a file. The gap is made
+	 * this large before reading, so if the expected size is not too small the buffer only grows once.
+	 * @return this
+	 * @throws IOException if the reader throws an exception
+	 * @see #write(Writer, int, int)
+	 */
+	public TextBuffer read(Reader in, long expected) throws IOException {
+		if(history != null)
+			history.clear();
+		moveGap(length());
+		ensureGap((int)Math.min(Math.max(expected, 0), Integer.MAX_VALUE - 8 - length()));
+		string = null;
+		while(true) {
+			if(gapStart == gapEnd)
+				ensureGap(8192);
+			int read = in.read(buffer, gapStart, gapEnd - gapStart);
+			if(read < 0)
+				break;
+			gapStart += read;
+		}
+		return this;
+	}
+	/**
+	 * Writes the characters from start to end to the writer. The characters are written directly
+	 * from the buffer, so no string of the text written is created.
+	 * @param out the writer to write to. It is neither flushed nor closed.
+	 * @param start the index of the first character to write (inclusive)
+	 * @param end the index after the last character to write (exclusive)
+	 * @throws IOException if the writer throws an exception
+	 * @see #read(Reader, long)
+	 */
+	public void write(Writer out, int start, int end) throws IOException {
+		checkRange(start, end);
+		if(start < gapStart) {
+			int before = Math.min(end, gapStart) - start;
+			out.write(buffer, start, before);
+			start += before;
+		}
+		if(start < end)
+			out.write(buffer, start + gapEnd - gapStart, end - start);
+	}
+
+	/**
+	 * Sets the history which keeps the edits made to this buffer so that they may be undone. Each
+	 * edit is given to the history before it is made.
+	 * @param history the new value of {@link #history}, or null to stop keeping edits
+	 * @return this
+	 */
+	public TextBuffer setHistory(EditHistory history) {
+		this.history = history;
+		return this;
+	}
+	/**
+	 * @return the history which keeps the edits made to this buffer, as {@link #history}
+	 */
+	public EditHistory getHistory() {
+		return history;
+	}
+
+	/**
+	 * Moves the gap so that it begins at the given index in the text.
+	 * @param index the index where the gap should begin
+	 */
+	protected void moveGap(int index) {
+		if(index < gapStart) {
+			int moved = gapStart - index;
+			System.arraycopy(buffer, index, buffer, gapEnd - moved, moved);
+			gapStart -= moved;
+			gapEnd -= moved;
+		}else if(index > gapStart) {
+			int moved = index - gapStart;
+			System.arraycopy(buffer, gapEnd, buffer, gapStart, moved);
+			gapStart += moved;
+			gapEnd += moved;
+		}
+	}
+
+	/**
+	 * Grows the buffer if the gap is smaller than the requested size. The buffer grows by at least
+	 * half of its size so that repeated insertions take amortized constant time per character.
+	 * @param size the number of characters which must fit in the gap
+	 */
+	protected void ensureGap(int size) {
+		int gap = gapEnd - gapStart;
+		if(gap >= size)
+			return;
+		int after = buffer.length - gapEnd;
+		int newLength = Math.max(buffer.length + buffer.length/2, buffer.length - gap + size + 16);
+		char[] grown = Arrays.copyOf(buffer, newLength);
+		System.arraycopy(buffer, gapEnd, grown, newLength - after, after);
+		buffer = grown;
+		gapEnd = newLength - after;
+	}
+
+	private void checkRange(int start, int end) {
+		if(start < 0 || end > length() || start > end)
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+	}
+
+	/**
+	 * Returns the contents of the buffer as a string. The string is created on the first call after
+	 * an edit and reused until the next edit.
+	 */
+	@Override
+	public String toString() {
+		if(string == null)
+			string = substring(0, length());
+		return string;
+	}
+
+}
@@ -8,6 +8,12 @@ package moulton.scalable.texts;
  * valid) before the next is considered (this is a slower method of processing, but is necessary
  * if character validity depends on the state of the text.
  * <p>
+ * When clients insert text before the end of the pre-existing text, only the inserted characters are
+ * checked, and they may all be checked before any is inserted. Formats whose validity of a character
+ * depends on the text before it (such as one which allows only a single decimal point) should return
+ * true from {@link #rechecksTrailingText()}. Then the inserted characters and all of the text after
+ * them are appended one at a time as described above.
+ * <p>
  * When clients replace/set the text, the text should be set to empty string, then each character
  * in the replacement should be appended in the method described above.
  * <p>
@@ -28,6 +34,19 @@ public abstract class TextFormat {
 	 */
 	public abstract boolean isValidChar(char c);
 	
+	/**
+	 * Whether the validity of characters depends on the text before them, so that the text after an
+	 * insertion must be checked again and each character must be appended before the next is checked.
+	 * Checking only the inserted characters lets large insertions, such as pasting, take time in
+	 * proportion to the insertion rather than to the whole text.
+	 * <p>
+	 * Default behavior returns false.
+	 * @return whether text after an insertion should be checked again
+	 */
+	public boolean rechecksTrailingText() {
+		return false;
+	}
+	
 	/**
 	 * Should be called when any amount of the text is deleted to guarantee that the format is
 	 * maintained.
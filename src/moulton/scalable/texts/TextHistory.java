@@ -5,11 +5,15 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Rectangle;
-import java.util.LinkedList;
+import java.awt.font.FontRenderContext;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import moulton.scalable.containers.Panel;
 import moulton.scalable.draggables.ScrollBar;
 import moulton.scalable.draggables.ScrollableComponent;
+import moulton.scalable.utils.FontCache;
 import moulton.scalable.utils.MenuComponent;
 import moulton.scalable.utils.MenuSolver.Expression;
 
@@ -24,15 +28,34 @@ import moulton.scalable.utils.MenuSolver.Expression;
  * <li>{@link #maxMessages} limits how many messages the text history can hold at a time. If more are added, older lines are deleted.
  * <li>{@link #textDemarcation} decides whether each entry should be separated by a separating line similar to an outline.
  * <li>{@link #wordSplitting} defines whether words can be split on ends of lines, or whether lines can only split on break characters.
+ * <li>{@link #maxBytes} limits how much text the text history can hold at a time. If more is added, older lines are deleted.
  * </ul><p>
+ * {@link #addToList(String...)} should only be called on the rendering thread. To feed the text
+ * history from other threads, such as a live log console, use {@link #post(String...)} instead. Posted
+ * messages are held in a lock-free queue which is emptied into {@link #history} once per frame at the
+ * start of {@link #render(Graphics, int, int, int, int)}, so neither the posting threads nor the
+ * rendering thread ever wait on each other. If the text history is not rendered for a while, such
+ * as when it is hidden, the oldest posted messages are dropped once twice as many as
+ * {@link #maxMessages} or {@link #maxBytes} allow are waiting, so the queue never grows without
+ * bound.
+ * <p>
+ * If a scroll bar is attached, the text history follows the most recent messages as long as the bar
+ * is at offset 0. Once the bar is scrolled away, or the history is paused with
+ * {@link #setPaused(boolean)}, the same lines stay in view as new messages arrive.
+ * {@link #followTail()} returns to following the most recent messages.
+ * <p>
  * Although it is highly recommended to add entries to the text history by the provided method, if
  * the list needs to be accessed directly by a subclass, {@link #history} is where the entries are
  * internally saved.
+ * <p>
+ * Note that {@link #history} is a {@link HistoryBuffer} rather than the <code>LinkedList</code> of
+ * earlier versions, so subclasses which used it as a list must be updated. Code which only reads
+ * the messages can use {@link #getMessages()}, a read only list view of the history.
  * @author Matthew Moulton
  */
 public class TextHistory extends MenuComponent implements ScrollableComponent{
-	/**The list of the strings being held. */
-	protected LinkedList<String> history = new LinkedList<>();
+	/**The strings being held, from oldest to newest. Holds at most {@link #maxMessages} strings. */
+	protected HistoryBuffer history;
 	/**The dimensions of the rectangle. */
 	protected Expression width, height;
 	/**The font that the history should be drawn in. */
@@ -45,7 +68,7 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 	 * @see #setViewMode(boolean)*/
 	protected boolean addToTop = false;
 	/**The maximum number of messages saved. After this number is reached, the oldest message is
-	 * deleted once the newest one is saved.
+	 * deleted once the newest one is saved. Lowering it deletes the oldest messages immediately.
 	 * @see #setMaxMessages(int)
 	 * @see #getMaxMessages()*/
 	protected int maxMessages;
@@ -66,6 +89,36 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 	/**The color with which the messages in {@link #history} are printed.
 	 * @see #setTextColor(Color)*/
 	protected Color textColor = Color.BLACK;
+	/**The number of messages added since the last render while {@link #bar} was scrolled away from
+	 * the most recent line. The scroll bar is moved past their lines in the next render so that the
+	 * same lines stay in view.*/
+	protected int unseenMessages = 0;
+	/**Whether the lines in view should stay in view as new messages are added, even if {@link #bar}
+	 * is at the most recent line.
+	 * @see #setPaused(boolean)
+	 * @see #followTail()*/
+	protected boolean paused = false;
+	/**The maximum number of bytes of text saved, counted as two bytes per character. After this
+	 * is reached, the oldest messages are deleted as new ones are saved. Defaults to no limit.
+	 * @see #setMaxBytes(long)
+	 * @see #getMaxBytes()*/
+	protected long maxBytes = Long.MAX_VALUE;
+	/**The most recently posted message that has not been added to {@link #history}, which links to
+	 * those posted before it. The messages waiting are trimmed by {@link #trimPosted()}.
+	 * @see #post(String...)*/
+	private final AtomicReference<PostedMessage> posted = new AtomicReference<>();
+	/**Breaks messages into lines for {@link #wrap(String, FontMetrics, int)}.*/
+	protected LineLayout wrapper = new LineLayout();
+	/**The width, font, render context, and {@link #wordSplitting} that the messages in
+	 * {@link #history} were wrapped with. If any changes, every message is wrapped again.
+	 * @see #wrapHistory(FontMetrics, int)*/
+	protected int wrapWidth = -1;
+	/**@see #wrapWidth*/
+	protected Font wrapFont;
+	/**@see #wrapWidth*/
+	protected FontRenderContext wrapContext;
+	/**@see #wrapWidth*/
+	protected boolean wrapSplit;
 	/**Saved scroll coordinates found from most recent render.
 	 * @see #getActiveScrollCoordinates()*/
 	protected int[][] scrollCoords = new int[2][4];
@@ -85,6 +138,7 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 		this.font = font;
 		this.addToTop = addToTop;
 		this.maxMessages = maxMessages;
+		history = new HistoryBuffer(maxMessages);
 	}
 	/**
 	 * Creates a new TextHistory component and adds it to the parent panel by
@@ -103,6 +157,7 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 		this.font = font;
 		this.addToTop = addToTop;
 		this.maxMessages = maxMessages;
+		history = new HistoryBuffer(maxMessages);
 		width = solve.parse(w, true, false);
 		height = solve.parse(h, true, false);
 	}
@@ -115,8 +170,13 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 		int w = rect.width;
 		int h = rect.height;
 		
-		if(parent != null)
-			scrollCoords = parent.handleOffsets(new int[] {x, x+w, x+w, x}, new int[] {y, y, y+h, y+h}, this); 				
+		if(parent != null) {
+			scrollCoords[0][0] = scrollCoords[0][3] = parent.toScreenX(x);
+			scrollCoords[0][1] = scrollCoords[0][2] = parent.toScreenX(x+w);
+			scrollCoords[1][0] = scrollCoords[1][1] = parent.toScreenY(y);
+			scrollCoords[1][2] = scrollCoords[1][3] = parent.toScreenY(y+h);
+		}
+		addPosted();
 		//there must be texts to display to draw them		
 		if(history.size()>0){
 			//set font
@@ -124,133 +184,55 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 				int fontSize = getTextVertResize(font.getSize());
 				if(fontSize < 1) //if the font is so small you cannot see it, there is nothing left to do here.
 					return;
-				g.setFont(new Font(font.getFontName(), font.getStyle(), fontSize));
+				g.setFont(FontCache.derive(font, fontSize));
 			} else
 				g.setFont(font);
 
 			FontMetrics metrics = g.getFontMetrics();
 			int numberOfLinesShown = h/metrics.getHeight();
-			String[] texts; //the actual lines to be shown
-			int textIndex; //the index that texts are taken from
-			int textMax; //the index of the max text shown
-			boolean allShown = true; //whether all the texts have been shown (serves to indicate redo)
-			int endCutOff; //the number of lines cut off from the end
-			boolean shouldReset; //whether rendering should be redone to incorporate more texts
-			boolean lineSeparate[] = new boolean[numberOfLinesShown];
-			do {
-				//set the initialization values
-				shouldReset = false;
-				texts = new String[numberOfLinesShown];
-				textMax = 0;
-				endCutOff = 0;
-				textIndex = history.size()-1; //show the latest text
-				int i = 0; //the index from start where the next line is drawn onto texts
-				if(bar!=null) {
-					textIndex-=bar.getOffset();
-					if(bar.getOffset()>0) //some texts were skipped, so not all was shown
-						allShown = false;
+			wrapHistory(metrics, w);
+			long totalLines = history.getTotalLines();
+			//the number of lines skipped, counted from the most recent line
+			int offset = 0;
+			if(bar!=null) {
+				offset = bar.getOffset();
+				//keep pace with the previously shown texts
+				if(unseenMessages>0 && (offset>0 || paused)) {
+					int added = Math.min(unseenMessages, history.size());
+					offset += (int)Math.min(Integer.MAX_VALUE-offset, totalLines - history.getLinesBefore(history.size()-added));
 				}
-				//sequentially add text bits into this list, then after it is processed, add
-				//them to the texts array in the correct order for the adding direction
-				LinkedList<String> thisText = new LinkedList<>();
-				while(textIndex>-1) {
-					thisText.clear(); //reset when it needs to be used again
-					String remainder = history.get(textIndex); //get a text
-					String line = "";
-					while(remainder.length()>0) {
-						line += remainder.charAt(0);
-						remainder = remainder.substring(1);
-						//if the line is too long
-						if(metrics.stringWidth(line)>w || line.charAt(line.length()-1)=='\n') {
-							//find the break
-							LineBreak result = LineBreak.check(wordSplitting, line, remainder);
-							remainder = result.REMAINDER;
-							//the line is just the right length now. add to the list
-							thisText.add(result.LINE);
-							line = "";
-						}
-					}//if there was any left over, it should be added too
-					if(!line.isEmpty())
-						thisText.add(line);
-					//that text was finished, now add it to the draw array
+				int total = (int)Math.min(Integer.MAX_VALUE, totalLines);
+				//if the history is resized larger, shift back to fill the lines available
+				offset = Math.max(0, Math.min(offset, total-numberOfLinesShown));
+				bar.setEnabled(total > numberOfLinesShown);
+				bar.setOffsets(Math.max(total, numberOfLinesShown), numberOfLinesShown, offset);
+			}
+			unseenMessages = 0;
+			
+			String[] texts = new String[numberOfLinesShown]; //the actual lines to be shown
+			boolean lineSeparate[] = new boolean[numberOfLinesShown];
+			int shown = 0; //the index from start where the next line is drawn onto texts
+			if(offset < totalLines) {
+				//find the message and line of the first line shown
+				long first = totalLines-1-offset;
+				int textIndex = history.findLine(first);
+				int lineCount = history.getLineCount(textIndex);
+				//lines of a message are counted in the order they are drawn
+				int line = (int)(history.getLinesBefore(textIndex) + lineCount-1 - first);
+				while(textIndex>-1 && shown<numberOfLinesShown) {
+					lineCount = history.getLineCount(textIndex);
 					//if we add to top, then we need the to process forwards. Otherwise we will process reverse
-					boolean textsFull = false; //break out of even getting more texts
-					while(!thisText.isEmpty()) {
-						if(addToTop)
-							texts[i++] = thisText.pollFirst();
-						else
-							texts[i++] = thisText.pollLast();
-						if(i>=numberOfLinesShown) { //texts is full
-							//the number of lines in this text that were cut off
-							endCutOff = thisText.size();
-							if(thisText.size() + textIndex>0)
-								allShown = false;
-							textsFull = true; //pull out
-							break;
-						}
-					}if(textsFull) //we don't need to get any more text lines
-						break;
+					for(; line<lineCount && shown<numberOfLinesShown; line++)
+						texts[shown++] = history.getLineText(textIndex, addToTop? line: lineCount-1-line);
 					//set line demarkation
-					if(textDemarcation)
-						lineSeparate[i] = true;
+					if(textDemarcation && shown<numberOfLinesShown)
+						lineSeparate[shown] = true;
 					//get the next text index
 					textIndex--;
+					line = 0;
 				}
-				//finds the maximum text offset used
-				textMax = texts.length-1;
-				for(int ii=0; ii<texts.length; ii++) {
-					if(texts[ii] == null) {
-						textMax = ii-1;
-						break;
-					}
-				}
-				//see whether a reset is necessary
-				/*If available lines are not being used and there are more lines needed to be shown, reset
-				 *the offset for the scroll bar and render again (shouldRender=true).
-				 *This could occur if the text history is resized larger when the bar's offset is nonzero.*/
-				shouldReset = (bar != null) && (textMax+1 < numberOfLinesShown && !allShown && bar.getOffset()!=0);
-				if(shouldReset) {
-					//there is one exception: if the next text would be too long to show, some white space is allowed
-					int availableLines = numberOfLinesShown-(textMax+1);
-					String rem = history.get(history.size()-bar.getOffset()); //get one text before start
-					//find how many lines the text will take
-					int lines = 1;
-					String line = "";
-					while(!rem.isEmpty() && lines<=availableLines) {
-						line += rem.charAt(0);
-						rem = rem.substring(1);
-						//if line is too long
-						if(metrics.stringWidth(line)>w || line.charAt(line.length()-1)=='\n') {
-							LineBreak result = LineBreak.check(wordSplitting, line, rem);
-							rem = result.REMAINDER;
-							line = result.LINE;
-							lines++;
-						}
-					}
-					if(lines>availableLines)
-						shouldReset = false; //exception met, don't reset
-					else //decreases the offset down until all possible is accommodated
-						bar.setOffset(bar.getOffset()- availableLines);
-				}
-			}while(shouldReset);
-			
-			//update the scroll bar
-			if(bar!=null) {
-				int totalOffs = bar.getOffset() + numberOfLinesShown;
-				if(!allShown) { //if there were some lines not shown, bar should be editable
-					bar.setEnabled(true);
-					/*To find the total number of offsets, find the initial offset texts (assume one line per
-					 *text), then add how many lines were shown, then add how many lines were cut off at the
-					 *end (lines from the text and remaining texts at one line per text).*/
-					if(textIndex>-1) //if something was cut off
-						totalOffs += textIndex + endCutOff;
-				}else {
-					bar.setEnabled(false);
-				}
-				if(bar.getTotalOffs()!=totalOffs)
-					bar.setTotalOffs(totalOffs);
-				bar.setBarOffs(numberOfLinesShown); //how many were shown
 			}
+			int textMax = shown-1; //the index of the max text shown
 			
 			//print now
 			g.setColor(textColor);
@@ -281,20 +263,183 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 	}
 
 	/**
-	 * Adds the string(s) to {@link #history} and changes {@link ScrollBar#totalOffs} of {@link #bar} if not null.
+	 * Wraps each message in {@link #history} that has not yet been wrapped. If the width, the font,
+	 * or {@link #wordSplitting} changed since the last render, all the messages are wrapped again.
+	 * Otherwise, only the messages added since the last render need to be wrapped.
+	 * @param metrics the font metrics of the font to draw with
+	 * @param width the width of each line in pixels
+	 */
+	protected void wrapHistory(FontMetrics metrics, int width) {
+		if(width != wrapWidth || wordSplitting != wrapSplit || !metrics.getFont().equals(wrapFont)
+				|| !metrics.getFontRenderContext().equals(wrapContext)) {
+			history.clearWraps();
+			wrapWidth = width;
+			wrapSplit = wordSplitting;
+			wrapFont = metrics.getFont();
+			wrapContext = metrics.getFontRenderContext();
+		}
+		for(int i=history.getWrapped(); i<history.size(); i++)
+			history.setWrap(i, wrap(history.get(i), metrics, width));
+	}
+	
+	/**
+	 * Breaks the message into the lines it is drawn on, following the same rules as
+	 * {@link LineBreak#check(boolean, CharSequence, int, int, int[])}. A message does not end with an empty line,
+	 * so an empty message has no lines.
+	 * @param message the message to wrap
+	 * @param metrics the font metrics of the font to draw with
+	 * @param width the width of each line in pixels
+	 * @return the start and end of each line, as saved by {@link HistoryBuffer#setWrap(int, int[])}
+	 */
+	protected int[] wrap(String message, FontMetrics metrics, int width) {
+		wrapper.layout(message, metrics, width, wordSplitting);
+		int lineCount = wrapper.getLineCount();
+		if(wrapper.getLineStart(lineCount-1) == message.length())
+			lineCount--;
+		if(lineCount == 0)
+			return HistoryBuffer.noLines();
+		if(lineCount == 1 && wrapper.getLineStart(0) == 0 && wrapper.getLineEnd(0) == message.length())
+			return null;
+		int[] bounds = new int[lineCount*2];
+		for(int i=0; i<lineCount; i++) {
+			bounds[i*2] = wrapper.getLineStart(i);
+			bounds[i*2 + 1] = wrapper.getLineEnd(i);
+		}
+		return bounds;
+	}
+
+	/**
+	 * Adds the string(s) to {@link #history}. If {@link #bar} is scrolled away from the most recent
+	 * line, it will be moved past the lines of the new strings in the next render so that the same
+	 * lines stay in view.
 	 * @param s The string(s) that should be added.
 	 */
 	public void addToList(String ...s){
+		//the buffer removes the oldest messages once it is full
 		for(int i=0; i<s.length; i++)
 			history.add(s[i]);
-		while(history.size()>maxMessages) {
-			history.removeFirst();
+		if(bar!=null && (bar.getOffset()>0 || paused))
+			unseenMessages += s.length;
+	}
+	
+	/**
+	 * Posts the string(s) to be added to {@link #history} at the start of the next render. This
+	 * may be called from any thread, and it never blocks. Messages posted from the same thread
+	 * are added in the order they were posted.
+	 * @param s The string(s) that should be added.
+	 */
+	public void post(String ...s) {
+		for(int i=0; i<s.length; i++) {
+			PostedMessage prev, node;
+			do {
+				prev = posted.get();
+				node = new PostedMessage(s[i], prev);
+			}while(!posted.compareAndSet(prev, node));
+			//trim once twice as many messages or characters as the history holds are waiting
+			if(node.count > 2L*maxMessages || (node.count > 1 && node.chars > 2*(maxBytes/2)))
+				trimPosted();
+		}
+	}
+	
+	/**
+	 * Drops the oldest messages waiting to be added until the rest fit within {@link #maxMessages}
+	 * and {@link #maxBytes}. Called by a posting thread once twice that many are waiting, so the
+	 * messages kept are copied once for every time as many are posted. Posted messages are never
+	 * changed, so the copies are linked into a new chain which replaces the old one at once, unless
+	 * another message was posted or the chain was taken in the meantime.
+	 */
+	private void trimPosted() {
+		while(true) {
+			PostedMessage last = posted.get();
+			if(last == null || (last.count <= maxMessages && (last.count == 1 || last.chars <= maxBytes/2)))
+				return;
+			PostedMessage copy = null;
+			for(PostedMessage node: newestPosted(last))
+				copy = new PostedMessage(node.message, copy);
+			if(posted.compareAndSet(last, copy))
+				return;
+		}
+	}
+	
+	/**
+	 * Returns the most recent messages of the chain that {@link #maxMessages} and {@link #maxBytes}
+	 * allow, since older ones would be deleted right away. The most recent message is always kept.
+	 * @param last the most recent message of the chain
+	 * @return the messages kept, from oldest to newest
+	 */
+	private PostedMessage[] newestPosted(PostedMessage last) {
+		long maxChars = maxBytes/2;
+		int count = 0;
+		for(PostedMessage node = last; node != null && count < maxMessages; node = node.prev) {
+			//the characters of the messages from node to last
+			if(count > 0 && last.chars - node.chars + node.message.length() > maxChars)
+				break;
+			count++;
 		}
-		if(bar!=null && bar.getOffset()>0) {
-			//change the offset to keep pace with the previously shown texts
-			bar.setTotalOffs(bar.getTotalOffs()+s.length);
-			bar.setOffset(bar.getOffset()+s.length);
+		PostedMessage[] kept = new PostedMessage[count];
+		PostedMessage node = last;
+		for(int i=count-1; i>=0; i--) {
+			kept[i] = node;
+			node = node.prev;
 		}
+		return kept;
+	}
+	
+	/**
+	 * Adds all the messages posted by {@link #post(String...)} since the last time this was called
+	 * to {@link #history}, in the order they were posted. Only the most recent messages that
+	 * {@link #maxMessages} and {@link #maxBytes} allow are added, since the older ones would be
+	 * deleted right away. Called by {@link #render(Graphics, int, int, int, int)}.
+	 */
+	protected void addPosted() {
+		PostedMessage last = posted.getAndSet(null);
+		if(last == null)
+			return;
+		PostedMessage[] kept = newestPosted(last);
+		for(PostedMessage node: kept)
+			history.add(node.message);
+		if(bar!=null && (bar.getOffset()>0 || paused))
+			unseenMessages += kept.length;
+	}
+	
+	/**
+	 * Sets whether the lines in view should stay in view as new messages are added. When unpaused,
+	 * the text history follows the most recent messages again only once {@link #bar} is at offset 0.
+	 * @param paused {@link #paused}
+	 * @return this
+	 * @see #followTail()
+	 */
+	public TextHistory setPaused(boolean paused) {
+		this.paused = paused;
+		return this;
+	}
+	/**
+	 * Returns whether the lines in view stay in view as new messages are added, even when the
+	 * most recent line is in view.
+	 * @return {@link #paused}
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+	/**
+	 * Unpauses the text history and scrolls {@link #bar} to the most recent line, so that the most
+	 * recent messages are shown as they are added.
+	 * @return this
+	 */
+	public TextHistory followTail() {
+		paused = false;
+		unseenMessages = 0;
+		if(bar != null)
+			bar.setOffset(0);
+		return this;
+	}
+	/**
+	 * Returns whether the most recent messages are shown as they are added. This is true when the
+	 * text history is not paused and {@link #bar} is at the most recent line.
+	 * @return whether the text history follows the most recent messages
+	 */
+	public boolean isFollowingTail() {
+		return !paused && (bar == null || bar.getOffset() == 0);
 	}
 
 	/**
@@ -344,8 +489,28 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 	 */
 	public TextHistory setMaxMessages(int maxMessages) {
 		this.maxMessages = maxMessages;
+		history.setMaxSize(maxMessages);
+		return this;
+	}
+	
+	/**
+	 * Sets the maximum number of bytes of text that this text history will hold. Each character
+	 * is counted as two bytes. The most recent message is always held, even if it is larger.
+	 * @param maxBytes {@link #maxBytes}
+	 * @return this
+	 */
+	public TextHistory setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		history.setMaxChars(maxBytes/2);
 		return this;
 	}
+	/**
+	 * Returns the maximum number of bytes of text that this text history can hold.
+	 * @return {@link #maxBytes}
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
 	/**
 	 * Returns the maximum number of messages that this text history can hold.
 	 * @return {@link #maxMessages}
@@ -354,6 +519,24 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 		return maxMessages;
 	}
 	
+	/**
+	 * Returns a read only view of the messages held, from oldest to newest. The view follows
+	 * {@link #history}, so it reflects messages added or removed after it is returned.
+	 * @return the messages of {@link #history} as a list
+	 */
+	public List<String> getMessages() {
+		return new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				return history.get(index);
+			}
+			@Override
+			public int size() {
+				return history.size();
+			}
+		};
+	}
+	
 	/**
 	 * Sets whether word splitting on ends of lines is allowed
 	 * @param allowSplit sets {@link #wordSplitting}
@@ -371,6 +554,27 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 		return wordSplitting;
 	}
 
+	/**
+	 * Sets the strategy deciding where messages may be broken into lines, such as a
+	 * {@link UnicodeBreakStrategy} for text in languages which do not separate words with spaces.
+	 * Every message is wrapped again on the next render.
+	 * @param breakStrategy the strategy, or null to break lines by the rules of {@link LineBreak}
+	 * @return this
+	 * @see LineLayout#setBreakStrategy(BreakStrategy)
+	 */
+	public TextHistory setBreakStrategy(BreakStrategy breakStrategy) {
+		wrapper.setBreakStrategy(breakStrategy);
+		wrapWidth = -1;
+		return this;
+	}
+	/**
+	 * @return the strategy deciding where messages may be broken into lines, or null if lines are
+	 * broken by the rules of {@link LineBreak}
+	 */
+	public BreakStrategy getBreakStrategy() {
+		return wrapper.getBreakStrategy();
+	}
+
 	@Override
 	public ScrollBar getWidthScrollBar() {
 		return null;
@@ -441,5 +645,25 @@ public class TextHistory extends MenuComponent implements ScrollableComponent{
 	public int[][] getActiveScrollCoordinates() {
 		return scrollCoords;
 	}
+	
+	/**
+	 * A node in the chain of messages posted by {@link TextHistory#post(String...)}. Nodes are never
+	 * changed once posted.
+	 */
+	private static class PostedMessage {
+		/**The message to add.*/
+		final String message;
+		/**The message posted before this one, or null if this is the oldest waiting.*/
+		final PostedMessage prev;
+		/**The number of messages and of characters in the chain from the oldest message to this one.*/
+		final long count, chars;
+		
+		PostedMessage(String message, PostedMessage prev) {
+			this.message = message;
+			this.prev = prev;
+			count = (prev == null)? 1: prev.count + 1;
+			chars = ((prev == null)? 0: prev.chars) + message.length();
+		}
+	}
 
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package moulton.scalable.texts;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Truncated Text class holds the part of a single line of text which fits within a width, as
+ * shown on the face of a {@link moulton.scalable.clickables.Button} or in a {@link Caption} too
+ * narrow for its text. Text which is too wide is cut after the last character that fits, and
+ * optionally ends with an ellipsis to show that it was cut.
+ * <p>
+ * The cut is found by a binary search over the cumulative advances of the characters, as given by
+ * {@link GlyphWidths}. Since labels are drawn with the same text, font, and width frame after
+ * frame, each result is saved and shared through {@link #of(String, GlyphWidths, int, boolean)},
+ * keyed by the text, the font and render context of the widths, the width, and whether an ellipsis
+ * is shown. The results used least recently are forgotten once more than {@link #MAX_ENTRIES} are
+ * saved. A component may also keep the result of its last render and check it with
+ * {@link #isOf(String, GlyphWidths, int, boolean)} before looking in the shared cache.
+ * @author Matthew Moulton
+ */
+public class TruncatedText {
+	/**The greatest number of truncations which are kept at once.*/
+	public static final int MAX_ENTRIES = 1024;
+	/**The truncations found recently, in order of least to most recent use.*/
+	private static final Map<TruncatedText, TruncatedText> CACHE = new LinkedHashMap<>(64, .75f, true);
+	/**The character shown at the end of text which was cut, when the font can display it.*/
+	public static final char ELLIPSIS = '\u2026';
+
+	/**The whole text which was truncated.*/
+	protected final String source;
+	/**The widths the text was measured with.*/
+	protected final GlyphWidths widths;
+	/**The width the text was fit within.*/
+	protected final int maxWidth;
+	/**Whether an ellipsis ends the text when it is cut.*/
+	protected final boolean ellipsis;
+	private final int hash;
+
+	/**The text shown, which is {@link #source} if it fits.
+	 * @see #getText()*/
+	protected String text;
+	/**The width of {@link #text} in pixels.
+	 * @see #getWidth()*/
+	protected int width;
+
+	private TruncatedText(String source, GlyphWidths widths, int maxWidth, boolean ellipsis) {
+		this.source = source;
+		this.widths = widths;
+		this.maxWidth = maxWidth;
+		this.ellipsis = ellipsis;
+		this.hash = ((source.hashCode()*31 + System.identityHashCode(widths))*31 + maxWidth)*2 + (ellipsis? 1: 0);
+	}
+
+	/**
+	 * Returns the part of the text which fits within the width. The result is shared with every
+	 * other request for the same text, widths, width, and ellipsis until it is forgotten.
+	 * @param text the text to fit. It is measured as a single line.
+	 * @param widths the widths of the font the text is drawn in
+	 * @param maxWidth the width in pixels to fit the text within
+	 * @param ellipsis whether text which is cut should end with an ellipsis. If not even the ellipsis
+	 * fits, the text is cut without one.
+	 * @return the truncated text
+	 */
+	public static TruncatedText of(String text, GlyphWidths widths, int maxWidth, boolean ellipsis) {
+		TruncatedText key = new TruncatedText(text, widths, maxWidth, ellipsis);
+		synchronized(CACHE) {
+			TruncatedText found = CACHE.get(key);
+			if(found != null)
+				return found;
+		}
+		key.truncate();
+		synchronized(CACHE) {
+			CACHE.put(key, key);
+			if(CACHE.size() > MAX_ENTRIES) {
+				Iterator<TruncatedText> eldest = CACHE.values().iterator();
+				eldest.next();
+				eldest.remove();
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Finds {@link #text} and {@link #width}.
+	 */
+	private void truncate() {
+		int length = source.length();
+		//advances[i] is the width of the first i characters
+		int[] advances = new int[length + 1];
+		for(int i=0; i<length; i++)
+			advances[i+1] = advances[i] + widths.charWidth(source, i);
+		if(advances[length] <= maxWidth) {
+			text = source;
+			width = advances[length];
+			return;
+		}
+
+		String mark = "";
+		if(ellipsis) {
+			mark = widths.getFont().canDisplay(ELLIPSIS)? String.valueOf(ELLIPSIS): "...";
+			if(widths.measure(mark) > maxWidth)
+				mark = "";
+		}
+		int room = maxWidth - widths.measure(mark);
+		//the most characters whose advances fit in the room
+		int low = 0, high = length;
+		while(low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if(advances[mid] <= room)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		if(low > 0 && Character.isHighSurrogate(source.charAt(low-1)))
+			low--; //keep surrogate pairs together
+		text = source.substring(0, low) + mark;
+		width = advances[low] + widths.measure(mark);
+	}
+
+	/**
+	 * Returns whether this is the truncation of the text with the widths, width, and ellipsis given.
+	 * @param text the text to fit
+	 * @param widths the widths of the font the text is drawn in
+	 * @param maxWidth the width to fit the text within
+	 * @param ellipsis whether text which is cut should end with an ellipsis
+	 * @return whether this result may be used for the text
+	 */
+	public boolean isOf(String text, GlyphWidths widths, int maxWidth, boolean ellipsis) {
+		return this.widths == widths && this.maxWidth == maxWidth && this.ellipsis == ellipsis
+				&& source.equals(text);
+	}
+
+	/**
+	 * @return the text to show, as {@link #text}
+	 */
+	public String getText() {
+		return text;
+	}
+	/**
+	 * @return the width of the text shown in pixels, as {@link #width}
+	 */
+	public int getWidth() {
+		return width;
+	}
+	/**
+	 * @return whether some of the text was cut
+	 */
+	public boolean isTruncated() {
+		return text != source;
+	}
+
+	/**
+	 * Forgets every truncation saved.
+	 */
+	public static void clear() {
+		synchronized(CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof TruncatedText))
+			return false;
+		TruncatedText other = (TruncatedText)o;
+		return hash == other.hash && isOf(other.source, other.widths, other.maxWidth, other.ellipsis);
+	}
+}
@@ -0,0 +1,89 @@
+package moulton.scalable.texts;
+
+import java.text.BreakIterator;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The Unicode Break Strategy breaks lines where {@link BreakIterator#getLineInstance(Locale)}
+ * allows, and never inside a cluster of characters found by
+ * {@link BreakIterator#getCharacterInstance(Locale)}. Therefore, text in languages which do not
+ * separate words with spaces, such as Chinese, Japanese, or Thai, is broken between words or
+ * characters as the language expects, and surrogate pairs and combining marks stay with the
+ * characters they belong to, even when words are split.
+ * <p>
+ * As with {@link LineBreak}, a space which ends a line is not drawn on it.
+ * @author Matthew Moulton
+ */
+public class UnicodeBreakStrategy extends BreakStrategy {
+	/**The locale whose rules are used to break lines.*/
+	protected final Locale locale;
+
+	/**
+	 * Creates a strategy following the rules of the default locale.
+	 */
+	public UnicodeBreakStrategy() {
+		this(Locale.getDefault());
+	}
+	/**
+	 * @param locale the locale whose rules are used to break lines, as {@link #locale}
+	 */
+	public UnicodeBreakStrategy(Locale locale) {
+		this(locale, DEFAULT_CACHED_CHARS);
+	}
+	/**
+	 * @param locale the locale whose rules are used to break lines, as {@link #locale}
+	 * @param maxCachedChars the greatest number of characters whose breaks are cached at once, as
+	 * {@link #maxCachedChars}
+	 */
+	public UnicodeBreakStrategy(Locale locale, long maxCachedChars) {
+		super(maxCachedChars);
+		this.locale = locale;
+	}
+
+	@Override
+	protected Breaks segment(String paragraph) {
+		//break iterators are not thread safe, so each segmenting uses its own
+		BreakIterator iterator = BreakIterator.getLineInstance(locale);
+		iterator.setText(paragraph);
+		int[] lines = new int[Math.max(4, paragraph.length()/4)];
+		int count = 0;
+		for(int b = iterator.next(); b != BreakIterator.DONE; b = iterator.next()) {
+			if(count == lines.length)
+				lines = Arrays.copyOf(lines, count * 2);
+			lines[count++] = b;
+		}
+		lines = Arrays.copyOf(lines, count);
+
+		//clusters are only saved if some cluster is longer than one character
+		int[] clusters = null;
+		iterator = BreakIterator.getCharacterInstance(locale);
+		iterator.setText(paragraph);
+		int last = 0;
+		count = 0;
+		for(int b = iterator.next(); b != BreakIterator.DONE; b = iterator.next()) {
+			if(clusters == null && b != last + 1) {
+				//every boundary before this one was after a single character
+				clusters = new int[paragraph.length()];
+				count = 0;
+				for(int i=1; i<=last; i++)
+					clusters[count++] = i;
+			}
+			if(clusters != null)
+				clusters[count++] = b;
+			else
+				count++;
+			last = b;
+		}
+		if(clusters != null)
+			clusters = Arrays.copyOf(clusters, count);
+		return new Breaks(lines, clusters);
+	}
+
+	/**
+	 * @return the locale whose rules are used to break lines
+	 */
+	public Locale getLocale() {
+		return locale;
+	}
+}
@@ -0,0 +1,83 @@
+package moulton.scalable.utils;
+
+import java.awt.Font;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Font Cache keeps the fonts derived for text which is resized by height, as given by
+ * {@link MenuComponent#getTextVertResize(int)}. Without it, every text component would create a new
+ * font each time it renders. Besides the allocation, Java2D looks up the glyphs it has drawn before
+ * by font, so a component which draws with the same font it drew with last frame draws faster than
+ * one which draws with a new font each frame.
+ * <p>
+ * Fonts are keyed by the base font and the size requested, and the fonts used least recently are
+ * forgotten when more than {@link #MAX_FONTS} have been derived.
+ * @author Matthew Moulton
+ */
+public class FontCache {
+	/**The greatest number of derived fonts which are kept at once.*/
+	public static final int MAX_FONTS = 64;
+	/**The derived fonts, in order of least to most recent use.*/
+	private static final Map<Key, Font> CACHE = new LinkedHashMap<Key, Font>(MAX_FONTS, .75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Font> eldest) {
+			return size() > MAX_FONTS;
+		}
+	};
+
+	/**
+	 * Returns the font with the name and style of the base font, and the given size. The same font
+	 * is returned for each request of an equal base font and size until it is evicted.
+	 * @param base the font to derive from. The font name of this font is used, as
+	 * {@link Font#getFontName()} gives it.
+	 * @param size the point size of the derived font
+	 * @return the derived font
+	 */
+	public static Font derive(Font base, int size) {
+		Key key = new Key(base, size);
+		synchronized(CACHE) {
+			Font font = CACHE.get(key);
+			if(font == null) {
+				font = new Font(base.getFontName(), base.getStyle(), size);
+				CACHE.put(key, font);
+			}
+			return font;
+		}
+	}
+
+	/**
+	 * Forgets all the derived fonts.
+	 */
+	public static void clear() {
+		synchronized(CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	/**
+	 * The base font and size which identify a derived font in {@link FontCache#CACHE}.
+	 */
+	private static class Key {
+		private final Font base;
+		private final int size;
+
+		private Key(Font base, int size) {
+			this.base = base;
+			this.size = size;
+		}
+
+		@Override
+		public int hashCode() {
+			return base.hashCode()*31 + size;
+		}
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key))
+				return false;
+			Key other = (Key)o;
+			return size == other.size && base.equals(other.base);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package moulton.scalable.utils;
 import java.awt.Dimension;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 
@@ -28,6 +29,15 @@ public class GridFormatter {
 	 * @see #removeComponent(int, int, boolean)
 	 * @see #getHeldComponents()*/
 	protected HashMap<Point, MenuComponent> gridComponents = new HashMap<Point, MenuComponent>();
+	/**The number of times components have been added to or removed from the grid. Lets holders of the
+	 * grid know when a cached view of {@link #gridComponents} must be rebuilt.
+	 * @see #getModCount()*/
+	protected int modCount = 0;
+	/**The non-null components of {@link #gridComponents}, built again each time a component is added or
+	 * removed. The array is never modified once built, so a thread rendering may read it while another
+	 * thread changes the grid.
+	 * @see #getHeldArray()*/
+	private volatile MenuComponent[] held = new MenuComponent[0];
 	/**Holds the values of unique row weights. At default, this map will be empty, and all shown rows will
 	 * have an implied weight of 1. However, row weights can be specified otherwise with {@link #specifyRowWeight(int, double)}
 	 * and they will be saved here. A row with a weight double to another row's weight will have double the
@@ -75,6 +85,8 @@ public class GridFormatter {
 		if (y >= gridDim.getHeight())
 			gridDim.height = y+1;
 		gridComponents.put(new Point(x, y), comp);
+		modCount++;
+		publish();
 	}
 	
 	/**Returns the components that are held.
@@ -83,6 +95,31 @@ public class GridFormatter {
 		return gridComponents.values();
 	}
 	
+	/**Returns the non-null components that are held, in the same order as {@link #getHeldComponents()}.
+	 * The array is shared and must not be modified. Unlike the collection, it is never changed once
+	 * returned, so it may be iterated while another thread adds or removes components.
+	 * @return {@link #held}*/
+	public MenuComponent[] getHeldArray() {
+		return held;
+	}
+	
+	/**Builds {@link #held} again from {@link #gridComponents} after a change.*/
+	private void publish() {
+		ArrayList<MenuComponent> comps = new ArrayList<MenuComponent>(gridComponents.size());
+		for(MenuComponent comp: gridComponents.values()) {
+			if(comp != null)
+				comps.add(comp);
+		}
+		held = comps.toArray(new MenuComponent[comps.size()]);
+	}
+	
+	/**Returns the number of times components have been added to or removed from the grid. If the value
+	 * has not changed, then neither have the components held.
+	 * @return {@link #modCount}*/
+	public int getModCount() {
+		return modCount;
+	}
+	
 	/**Sets the {@link #xMargin} and {@link #yMargin} for this panel. The margins will
 	 * be used to separate components in the grid. Thus the number of marginal dimensions
 	 * for the width of a panel is (number of x components)-1, where the number of x 
@@ -114,6 +151,8 @@ public class GridFormatter {
 		//should check to resize even if the value at the key was null
 		boolean removed = gridComponents.containsKey(toRemove);
 		gridComponents.remove(toRemove);
+		modCount++;
+		publish();
 		if(gridComponents.size() == 0) {
 			//if there are no more, we need the dimensions to be 0,0
 			gridDim.width = 0;
@@ -108,6 +108,7 @@ public abstract class MenuComponent {
 	 */
 	public void setParent(Panel parent){
 		if(this.parent != null){
+			this.parent.getRoot().unindexIds(this);
 			if(gridPoint != null)
 				this.parent.removeFromGrid(gridPoint.x, gridPoint.y, true);
 			else
@@ -122,6 +123,21 @@ public abstract class MenuComponent {
 		}
 			
 		this.parent = parent;
+		//the IDs of this component (and its descendants) now belong to the new tree
+		Panel root = getRoot();
+		if(root != null)
+			root.indexIds(this);
+	}
+	
+	/**
+	 * Returns the root panel of the tree this component resides in. The root panel is the panel
+	 * which has no parent, normally {@link MenuManager#menu} or the base of a pop up.
+	 * @return the root panel, or null if this component has no parent
+	 */
+	public Panel getRoot() {
+		if(parent == null)
+			return null;
+		return parent.getRoot();
 	}
 	
 	/**
@@ -160,20 +176,13 @@ public abstract class MenuComponent {
 	
 	/**When text should be resized based on the vertical size, as indicated in {@link MenuComponent#textResize()},
 	 * most components with a textual element will resize their text font to have the size returned by this method. <p>
-	 * It is calculated to be in inverse proportion to {@link #text_resize_factor}.
+	 * It is calculated to be in inverse proportion to {@link #text_resize_factor}. The height of the root panel
+	 * is taken from {@link Panel#getRootHeight()}, which each panel copies from its parent as it renders.
 	 * @param originalFontSize the original size of the font, most commonly defined in the creation of the component
 	 * @return the new value of the font size for this render
 	 */
 	protected int getTextVertResize(int originalFontSize) {
-		Panel panel = this.parent;
-		boolean rootFound = false;
-		while(!rootFound) {
-			if(panel.getParent() == null)
-				rootFound = true;
-			else
-				panel = panel.getParent();
-		}
-		return (int)(originalFontSize / ((double) text_resize_factor / panel.getRecentHeight()));
+		return (int)(originalFontSize / ((double) text_resize_factor / parent.getRootHeight()));
 	}
 	
 	/**
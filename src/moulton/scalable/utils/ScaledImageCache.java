@@ -0,0 +1,243 @@
+package moulton.scalable.utils;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Scaled Image Cache keeps images which were scaled to the size they are drawn at. Drawing an
+ * image with {@link Graphics#drawImage(java.awt.Image, int, int, int, int, java.awt.image.ImageObserver)}
+ * at a size other than its own samples the whole source image again every frame, which is slow for
+ * large images drawn small. Instead, {@link #drawImage(Graphics, BufferedImage, int, int, int, int)}
+ * scales the image once and draws the scaled copy without scaling each following frame.
+ * <p>
+ * Scaled images are keyed by the source image, the size, and the interpolation hint of the
+ * graphics, so an image is scaled again when its component is resized. Images are compared by
+ * identity, so the contents of an image must not change while scaled copies of it are kept, unless
+ * {@link #invalidate(BufferedImage)} is called after each change. The scaled images used least
+ * recently are forgotten once their pixels total more than {@link #getMaxPixels()}. The source
+ * images are only weakly referenced, so the cache never keeps an image which is no longer used
+ * alive, and the scaled copies of such an image are forgotten as the cache is next used.
+ * @author Matthew Moulton
+ */
+public class ScaledImageCache {
+	/**The default greatest number of scaled pixels kept at once, about 64MB of 32 bit pixels.*/
+	public static final long DEFAULT_MAX_PIXELS = 16L << 20;
+	/**The scaled images, in order of least to most recent use.*/
+	private static final Map<Key, BufferedImage> CACHE = new LinkedHashMap<>(64, .75f, true);
+	/**The keys whose source images have been collected, to be removed from {@link #CACHE}.*/
+	private static final ReferenceQueue<BufferedImage> COLLECTED = new ReferenceQueue<>();
+	/**The number of pixels in all the images in {@link #CACHE}.*/
+	private static long pixels = 0;
+	/**@see #getMaxPixels()*/
+	private static volatile long maxPixels = DEFAULT_MAX_PIXELS;
+
+	/**
+	 * Draws the image scaled to fill the rectangle, as
+	 * {@link Graphics#drawImage(java.awt.Image, int, int, int, int, java.awt.image.ImageObserver)}
+	 * would. If the size differs from the size of the image, a copy scaled with the interpolation
+	 * hint of the graphics is drawn instead, which is only scaled the first time it is needed.
+	 * @param g the graphics to draw on
+	 * @param image the image to draw
+	 * @param x the x coordinate of the left of the rectangle
+	 * @param y the y coordinate of the top of the rectangle
+	 * @param width the width of the rectangle
+	 * @param height the height of the rectangle
+	 */
+	public static void drawImage(Graphics g, BufferedImage image, int x, int y, int width, int height) {
+		if(width <= 0 || height <= 0 || !(g instanceof Graphics2D)
+				|| (width == image.getWidth() && height == image.getHeight())
+				|| (long)width*height > maxPixels) {
+			g.drawImage(image, x, y, width, height, null);
+			return;
+		}
+		Graphics2D g2 = (Graphics2D)g;
+		Object hint = g2.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+		Key key = new Key(image, width, height, hint);
+		BufferedImage scaled;
+		synchronized(CACHE) {
+			expunge();
+			scaled = CACHE.get(key);
+		}
+		if(scaled == null) {
+			scaled = scale(g2, image, width, height, hint);
+			synchronized(CACHE) {
+				if(CACHE.put(key, scaled) == null)
+					pixels += (long)width*height;
+				trim();
+			}
+		}
+		g.drawImage(scaled, x, y, null);
+	}
+
+	/**
+	 * Draws the image scaled to fill the rectangle, through the cache only if <code>cached</code> is
+	 * true. This lets components which cache their images by choice draw them with a single call.
+	 * @param g the graphics to draw on
+	 * @param image the image to draw
+	 * @param x the x coordinate of the left of the rectangle
+	 * @param y the y coordinate of the top of the rectangle
+	 * @param width the width of the rectangle
+	 * @param height the height of the rectangle
+	 * @param cached whether to draw through {@link #drawImage(Graphics, BufferedImage, int, int, int, int)}
+	 * rather than scaling the image as it is drawn
+	 */
+	public static void drawImage(Graphics g, BufferedImage image, int x, int y, int width, int height, boolean cached) {
+		if(cached)
+			drawImage(g, image, x, y, width, height);
+		else
+			g.drawImage(image, x, y, width, height, null);
+	}
+
+	/**
+	 * Scales the image to the size.
+	 * @param g the graphics the scaled image will be drawn on, whose device the scaled image is made
+	 * compatible with
+	 * @param image the image to scale
+	 * @param width the width to scale to
+	 * @param height the height to scale to
+	 * @param hint the value of {@link RenderingHints#KEY_INTERPOLATION} to scale with, or null for
+	 * the default
+	 * @return the scaled image
+	 */
+	private static BufferedImage scale(Graphics2D g, BufferedImage image, int width, int height, Object hint) {
+		int transparency = image.getColorModel().getTransparency();
+		BufferedImage scaled;
+		if(g.getDeviceConfiguration() != null)
+			scaled = g.getDeviceConfiguration().createCompatibleImage(width, height, transparency);
+		else
+			scaled = new BufferedImage(width, height, (transparency == Transparency.OPAQUE)?
+					BufferedImage.TYPE_INT_RGB: BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D sg = scaled.createGraphics();
+		sg.setComposite(AlphaComposite.Src);
+		if(hint != null)
+			sg.setRenderingHint(RenderingHints.KEY_INTERPOLATION, hint);
+		sg.drawImage(image, 0, 0, width, height, null);
+		sg.dispose();
+		return scaled;
+	}
+
+	/**
+	 * Forgets the scaled copies of the source images which have been collected.
+	 */
+	private static void expunge() {
+		Object collected;
+		while((collected = COLLECTED.poll()) != null) {
+			Key key = (Key)collected;
+			if(CACHE.remove(key) != null)
+				pixels -= (long)key.width*key.height;
+		}
+	}
+	/**
+	 * Forgets the scaled copies of collected images, then the oldest scaled images until the pixels
+	 * kept are within {@link #maxPixels}.
+	 */
+	private static void trim() {
+		expunge();
+		Iterator<Map.Entry<Key, BufferedImage>> eldest = CACHE.entrySet().iterator();
+		while(pixels > maxPixels && eldest.hasNext()) {
+			Key key = eldest.next().getKey();
+			pixels -= (long)key.width*key.height;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Forgets every scaled copy of the image. This should be called whenever the contents of an
+	 * image which is drawn scaled change.
+	 * @param image the image whose scaled copies are forgotten
+	 */
+	public static void invalidate(BufferedImage image) {
+		synchronized(CACHE) {
+			expunge();
+			Iterator<Key> keys = CACHE.keySet().iterator();
+			while(keys.hasNext()) {
+				Key key = keys.next();
+				if(key.get() == image) {
+					pixels -= (long)key.width*key.height;
+					keys.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets all the scaled images.
+	 */
+	public static void clear() {
+		synchronized(CACHE) {
+			CACHE.clear();
+			pixels = 0;
+			while(COLLECTED.poll() != null);
+		}
+	}
+
+	/**
+	 * Sets the greatest number of scaled pixels kept at once. Images larger than this are scaled as
+	 * they are drawn.
+	 * @param max the number of pixels
+	 */
+	public static void setMaxPixels(long max) {
+		synchronized(CACHE) {
+			maxPixels = max;
+			trim();
+		}
+	}
+	/**
+	 * Returns the greatest number of scaled pixels kept at once. Defaults to
+	 * {@link #DEFAULT_MAX_PIXELS}.
+	 * @return the number of pixels
+	 */
+	public static long getMaxPixels() {
+		return maxPixels;
+	}
+
+	/**
+	 * The source image, size, and interpolation which identify a scaled image in
+	 * {@link ScaledImageCache#CACHE}. The source image is weakly referenced, and the key is added to
+	 * {@link ScaledImageCache#COLLECTED} once the image is collected.
+	 */
+	private static class Key extends WeakReference<BufferedImage> {
+		private final int width, height;
+		private final Object hint;
+		/**The hash of the key, kept since the identity of the image is lost once it is collected.*/
+		private final int hash;
+
+		private Key(BufferedImage image, int width, int height, Object hint) {
+			super(image, COLLECTED);
+			this.width = width;
+			this.height = height;
+			this.hint = hint;
+			int hash = System.identityHashCode(image);
+			hash = hash*31 + width;
+			hash = hash*31 + height;
+			this.hash = hash*31 + ((hint == null)? 0: hint.hashCode());
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		@Override
+		public boolean equals(Object o) {
+			if(o == this)
+				return true;
+			if(!(o instanceof Key))
+				return false;
+			Key other = (Key)o;
+			BufferedImage image = get();
+			//a collected image is equal to no other key, so its key may only be found by itself
+			return image != null && image == other.get() && width == other.width
+					&& height == other.height && hash == other.hash
+					&& (hint == null? other.hint == null: hint.equals(other.hint));
+		}
+	}
+}
@@ -9,6 +9,7 @@ import moulton.scalable.clickables.RadioButton;
 import moulton.scalable.containers.Panel;
 import moulton.scalable.utils.MenuComponent;
 import moulton.scalable.utils.MenuSolver.Expression;
+import moulton.scalable.utils.ScaledImageCache;
 
 /**
  * A button that displays an {@link Animation} on its button face.
@@ -30,6 +31,10 @@ public class AnimatedButton extends RadioButton {
 	protected Animation clickedAnimation;
 	/**The equations to determine the dimensions of this button. */
 	protected Expression width, height;
+	/**Whether the image is drawn through {@link ScaledImageCache}. Defaults to false.
+	 * @see #setImageCaching(boolean)
+	 * @see #getImageCaching()*/
+	protected boolean imageCaching = false;
 
 	/**
 	 * @param animation the animation to draw on the face of the button
@@ -55,7 +60,7 @@ public class AnimatedButton extends RadioButton {
 	public AnimatedButton(String id, Animation animation, Panel parent, String x, String y,
 			String width, String height, Color background) {
 		super(parent, x, y, background);
-		this.id = id;
+		setId(id);
 		this.width = solve.parse(width, true, false);
 		this.height = solve.parse(height, true, false);
 		this.mainAnimation = animation;
@@ -83,7 +88,7 @@ public class AnimatedButton extends RadioButton {
 	public AnimatedButton(String id, Animation animation, Panel parent,  int x, int y,
 			Color background) {
 		super(parent, x, y, background);
-		this.id = id;
+		setId(id);
 		this.mainAnimation = animation;
 	}
 	
@@ -141,8 +146,7 @@ public class AnimatedButton extends RadioButton {
 		g.setColor(getFillColor());
 		g.fillRect(x, y, w, h);
 		if(parent != null)
-			defineClickBoundary(parent.handleOffsets(new int[] {x, x+w, x+w, x},
-					new int[] {y, y, y+h, y+h}, this));
+			defineClickBoundary(x, y, w, h);
 		
 		// draw the picture
 		BufferedImage imageToDraw = getDrawAnimation().getPicture();
@@ -157,8 +161,8 @@ public class AnimatedButton extends RadioButton {
 				imgHeight= h;
 				imgWidth = (h*imageToDraw.getWidth())/imageToDraw.getHeight();
 			}
-			g.drawImage(imageToDraw, x+(w-imgWidth)/2, y+(h-imgHeight)/2,
-					imgWidth, imgHeight, null);
+			ScaledImageCache.drawImage(g, imageToDraw, x+(w-imgWidth)/2, y+(h-imgHeight)/2,
+					imgWidth, imgHeight, imageCaching);
 		}
 		
 		//draw outline if necessary
@@ -226,4 +230,21 @@ public class AnimatedButton extends RadioButton {
 		this.colorTouched = touchedColor;
 		return this;
 	}
+	
+	/**
+	 * Sets whether the image is drawn through {@link ScaledImageCache}.
+	 * @param cache {@link #imageCaching}
+	 * @return this
+	 */
+	public AnimatedButton setImageCaching(boolean cache) {
+		imageCaching = cache;
+		return this;
+	}
+	/**
+	 * Returns whether the image is drawn through {@link ScaledImageCache}.
+	 * @return {@link #imageCaching}
+	 */
+	public boolean getImageCaching() {
+		return imageCaching;
+	}
 }
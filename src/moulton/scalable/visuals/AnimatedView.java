@@ -8,6 +8,7 @@ import java.awt.image.BufferedImage;
 import moulton.scalable.containers.Panel;
 import moulton.scalable.utils.MenuComponent;
 import moulton.scalable.utils.MenuSolver.Expression;
+import moulton.scalable.utils.ScaledImageCache;
 
 /**
  * A menu component designed to display an {@link Animation}. The component can either keep the
@@ -31,6 +32,10 @@ public class AnimatedView extends MenuComponent {
 	 * @see #setOutline(boolean)
 	 * @see #getOutline()*/
 	protected boolean outline = false;
+	/**Whether the image is drawn through {@link ScaledImageCache}. Defaults to false.
+	 * @see #setImageCaching(boolean)
+	 * @see #getImageCaching()*/
+	protected boolean imageCaching = false;
 	
 	/**
 	 * @param animation The animation that will be drawn onto the coordinates provided
@@ -74,13 +79,13 @@ public class AnimatedView extends MenuComponent {
 				//find which aspect is the limiting dimension
 				if(widthRatio <= heightRatio) { //the width is proportionately smaller
 					int newHeight = (int)(widthRatio*img.getHeight());
-					g.drawImage(img, x, y+h/2-newHeight/2, w, newHeight, null);
+					ScaledImageCache.drawImage(g, img, x, y+h/2-newHeight/2, w, newHeight, imageCaching);
 				}else { //the height is proportionately smaller
 					int newWidth = (int)(heightRatio*img.getWidth());
-					g.drawImage(img, x+w/2-newWidth/2, y, newWidth, h, null);
+					ScaledImageCache.drawImage(g, img, x+w/2-newWidth/2, y, newWidth, h, imageCaching);
 				}
 			}else
-				g.drawImage(img, x, y, w, h, null);
+				ScaledImageCache.drawImage(g, img, x, y, w, h, imageCaching);
 			if(outline) {
 				g.setColor(Color.BLACK);
 				g.drawRect(x, y, w, h);
@@ -139,4 +144,21 @@ public class AnimatedView extends MenuComponent {
 	public boolean getOutline(){
 		return outline;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Sets whether the image is drawn through {@link ScaledImageCache}.
+	 * @param cache {@link #imageCaching}
+	 * @return this
+	 */
+	public AnimatedView setImageCaching(boolean cache) {
+		imageCaching = cache;
+		return this;
+	}
+	/**
+	 * Returns whether the image is drawn through {@link ScaledImageCache}.
+	 * @return {@link #imageCaching}
+	 */
+	public boolean getImageCaching() {
+		return imageCaching;
+	}
+}
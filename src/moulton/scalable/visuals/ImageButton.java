@@ -9,6 +9,7 @@ import moulton.scalable.clickables.RadioButton;
 import moulton.scalable.containers.Panel;
 import moulton.scalable.utils.MenuComponent;
 import moulton.scalable.utils.MenuSolver.Expression;
+import moulton.scalable.utils.ScaledImageCache;
 
 /**
  * A button that displays an image instead of text on its button face.
@@ -33,6 +34,10 @@ public class ImageButton extends RadioButton {
 	 * image.
 	 * @see #setPadding(String, String)*/
 	protected Expression vertPadding, horizPadding;
+	/**Whether the image is drawn through {@link ScaledImageCache}. Defaults to false.
+	 * @see #setImageCaching(boolean)
+	 * @see #getImageCaching()*/
+	protected boolean imageCaching = false;
 
 	/**
 	 * @param img the image to draw as the face of the button
@@ -138,8 +143,7 @@ public class ImageButton extends RadioButton {
 		g.setColor(getFillColor());
 		g.fillRect(x, y, w, h);
 		if(parent != null)
-			defineClickBoundary(parent.handleOffsets(new int[] {x, x+w, x+w, x},
-					new int[] {y, y, y+h, y+h}, this));
+			defineClickBoundary(x, y, w, h);
 		
 		// draw the picture
 		BufferedImage imageToDraw = getDrawImage();
@@ -167,8 +171,8 @@ public class ImageButton extends RadioButton {
 				imgWidth = (availableH*imageToDraw.getWidth())/imageToDraw.getHeight();
 			}
 			
-			g.drawImage(imageToDraw, x+(w-imgWidth)/2, y+(h-imgHeight)/2,
-					imgWidth, imgHeight, null);
+			ScaledImageCache.drawImage(g, imageToDraw, x+(w-imgWidth)/2, y+(h-imgHeight)/2,
+					imgWidth, imgHeight, imageCaching);
 		}
 		
 		//draw outline if necessary
@@ -251,4 +255,21 @@ public class ImageButton extends RadioButton {
 		this.horizPadding = (horizPadding == null)? null : solve.parse(horizPadding, false, false);
 		return this;
 	}
+	
+	/**
+	 * Sets whether the image is drawn through {@link ScaledImageCache}.
+	 * @param cache {@link #imageCaching}
+	 * @return this
+	 */
+	public ImageButton setImageCaching(boolean cache) {
+		imageCaching = cache;
+		return this;
+	}
+	/**
+	 * Returns whether the image is drawn through {@link ScaledImageCache}.
+	 * @return {@link #imageCaching}
+	 */
+	public boolean getImageCaching() {
+		return imageCaching;
+	}
 }